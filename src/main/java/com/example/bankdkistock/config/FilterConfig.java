@@ -9,9 +9,9 @@ import org.springframework.context.annotation.Configuration;
 public class FilterConfig {
 
     @Bean
-    public FilterRegistrationBean<LoggingFilter> loggingFilter() {
+    public FilterRegistrationBean<LoggingFilter> loggingFilter(HttpLoggingProperties httpLoggingProperties) {
         FilterRegistrationBean<LoggingFilter> registrationBean = new FilterRegistrationBean<>();
-        registrationBean.setFilter(new LoggingFilter());
+        registrationBean.setFilter(new LoggingFilter(httpLoggingProperties));
         registrationBean.addUrlPatterns("/*");
 
         return registrationBean;
@@ -0,0 +1,25 @@
+package com.example.bankdkistock.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "app.logging.http")
+public class HttpLoggingProperties {
+
+    // Maximum number of response body bytes copied into the log line
+    private int maxBodyBytes = 1024;
+
+    // Fraction of requests whose response body is captured, 0.0 - 1.0
+    private double sampleRate = 1.0;
+
+    // Per route (path prefix) overrides of sampleRate, the longest matching prefix wins
+    private Map<String, Double> routeSampleRates = new HashMap<>();
+}
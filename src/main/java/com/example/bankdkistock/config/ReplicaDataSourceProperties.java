@@ -0,0 +1,37 @@
+package com.example.bankdkistock.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "app.datasource")
+public class ReplicaDataSourceProperties {
+
+    // Read replicas, read-only transactions are spread over the healthy ones. Empty means everything uses spring.datasource
+    private List<Replica> replicas = new ArrayList<>();
+
+    // Replicas further behind the primary than this are skipped until they catch up
+    private Duration maxReplicaLag = Duration.ofSeconds(5);
+
+    // After a write, reads by the same user stay on the primary for this long so they see their own changes
+    private Duration readYourWritesWindow = Duration.ofSeconds(10);
+
+    private Duration healthCheckTimeout = Duration.ofSeconds(2);
+
+    // Pool settings are not listed here, replicas[n].hikari.* is bound straight onto the replica's HikariDataSource
+    @Getter
+    @Setter
+    public static class Replica {
+        private String url;
+        private String username;
+        private String password;
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.bankdkistock.config;
+
+import com.example.bankdkistock.util.DataSourceRouting;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends connections for read-only transactions to a healthy replica that is within the allowed lag, and
+ * everything else to the primary. Sits behind a LazyConnectionDataSourceProxy so the routing decision is made
+ * at the first statement, after the transaction's read-only flag is known.
+ * <p>
+ * Falls back to the primary when no replica qualifies, when the caller pinned the thread with
+ * {@link DataSourceRouting#primary}, and for users who wrote within {@code read-your-writes-window}.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    private static final Logger logger = LogManager.getLogger(ReplicaRoutingDataSource.class);
+
+    static final String PRIMARY = "primary";
+
+    // 0 when the replica has replayed everything it received, otherwise seconds since the last replayed commit
+    private static final String LAG_QUERY = "SELECT pg_is_in_recovery(), CASE " +
+            "WHEN NOT pg_is_in_recovery() OR pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 " +
+            "ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()), 0) END";
+
+    private final DataSource primary;
+    private final List<ReplicaState> replicas;
+    private final double maxLagSeconds;
+    private final int healthCheckTimeoutSeconds;
+    private final AtomicInteger next = new AtomicInteger();
+
+    // Usernames with a recent write, expiring after the read-your-writes window
+    private final Cache<String, Boolean> recentWriters;
+
+    private final Counter primaryRoutes;
+
+    public ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas,
+                                    ReplicaDataSourceProperties properties, MeterRegistry meterRegistry) {
+        Map<Object, Object> targets = new HashMap<>(replicas);
+        targets.put(PRIMARY, primary);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+
+        this.primary = primary;
+
+        this.replicas = replicas.entrySet().stream()
+                .map(replica -> new ReplicaState(replica.getKey(), replica.getValue(), meterRegistry))
+                .toList();
+        this.maxLagSeconds = properties.getMaxReplicaLag().toMillis() / 1000.0;
+        this.healthCheckTimeoutSeconds = (int) Math.max(1, properties.getHealthCheckTimeout().toSeconds());
+        this.recentWriters = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterWrite(properties.getReadYourWritesWindow())
+                .build();
+        this.primaryRoutes = Counter.builder("datasource.routing")
+                .tag("target", PRIMARY)
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        String username = currentUsername();
+
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (username != null && TransactionSynchronizationManager.isActualTransactionActive()) {
+                recentWriters.put(username, Boolean.TRUE);
+            }
+            primaryRoutes.increment();
+            return PRIMARY;
+        }
+
+        if (DataSourceRouting.isPrimaryRequired() || (username != null && recentWriters.getIfPresent(username) != null)) {
+            primaryRoutes.increment();
+            return PRIMARY;
+        }
+
+        int size = replicas.size();
+        int start = Math.floorMod(next.getAndIncrement(), size);
+        for (int i = 0; i < size; i++) {
+            ReplicaState replica = replicas.get((start + i) % size);
+            if (replica.healthy && replica.lagSeconds <= maxLagSeconds) {
+                replica.routes.increment();
+                return replica.name;
+            }
+        }
+
+        primaryRoutes.increment();
+        return PRIMARY;
+    }
+
+    @Scheduled(fixedDelayString = "${app.datasource.health-check-interval-ms:5000}")
+    public void checkReplicas() {
+        for (ReplicaState replica : replicas) {
+            try {
+                JdbcTemplate jdbcTemplate = new JdbcTemplate(replica.dataSource);
+                jdbcTemplate.setQueryTimeout(healthCheckTimeoutSeconds);
+                jdbcTemplate.query(LAG_QUERY, resultSet -> {
+                    replica.lagSeconds = resultSet.getDouble(2);
+                });
+
+                if (!replica.healthy) logger.info("Replica {} is available again", replica.name);
+                replica.healthy = true;
+            } catch (RuntimeException e) {
+                if (replica.healthy) logger.warn("Replica {} failed its health check, reads fall back: {}", replica.name, e.getMessage());
+                replica.healthy = false;
+            }
+        }
+    }
+
+    // Called on shutdown, the pools are owned by this data source rather than registered as beans
+    public void close() throws Exception {
+        for (ReplicaState replica : replicas) {
+            if (replica.dataSource instanceof AutoCloseable closeable) closeable.close();
+        }
+        if (primary instanceof AutoCloseable closeable) closeable.close();
+    }
+
+    private String currentUsername() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication == null || !authentication.isAuthenticated() ? null : authentication.getName();
+    }
+
+    private static class ReplicaState {
+        private final String name;
+        private final DataSource dataSource;
+        private final Counter routes;
+
+        // Unhealthy until the first check succeeds, so a replica that is down at startup never gets traffic
+        private volatile boolean healthy;
+        private volatile double lagSeconds;
+
+        private ReplicaState(String name, DataSource dataSource, MeterRegistry meterRegistry) {
+            this.name = name;
+            this.dataSource = dataSource;
+            this.routes = Counter.builder("datasource.routing")
+                    .tag("target", name)
+                    .register(meterRegistry);
+
+            Gauge.builder("datasource.replica.healthy", this, replica -> replica.healthy ? 1 : 0)
+                    .tag("replica", name)
+                    .register(meterRegistry);
+            Gauge.builder("datasource.replica.lag", this, replica -> replica.lagSeconds)
+                    .tag("replica", name)
+                    .baseUnit("seconds")
+                    .register(meterRegistry);
+        }
+    }
+}
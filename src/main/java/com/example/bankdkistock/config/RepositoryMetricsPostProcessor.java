@@ -0,0 +1,103 @@
+package com.example.bankdkistock.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.stereotype.Repository;
+import org.springframework.util.ClassUtils;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wraps every {@code @Repository} bean in a proxy that records a {@code repository.invocations} timer per
+ * repository interface and method. Timers are created on the first call of each method and then looked up
+ * from a map, so a call costs two {@code nanoTime} reads and a histogram bucket increment.
+ */
+public class RepositoryMetricsPostProcessor implements BeanPostProcessor {
+
+    private static final String REPOSITORY_PACKAGE = "com.example.bankdkistock.repository";
+
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    public RepositoryMetricsPostProcessor(ObjectProvider<MeterRegistry> meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        // The target class, @Transactional repositories arrive here already wrapped in a CGLIB proxy
+        if (!AnnotatedElementUtils.hasAnnotation(AopUtils.getTargetClass(bean), Repository.class)) {
+            return bean;
+        }
+
+        Class<?>[] repositoryInterfaces = Arrays.stream(ClassUtils.getAllInterfaces(bean))
+                .filter(type -> type.getPackageName().equals(REPOSITORY_PACKAGE))
+                .toArray(Class<?>[]::new);
+        if (repositoryInterfaces.length == 0) return bean;
+
+        return Proxy.newProxyInstance(bean.getClass().getClassLoader(), repositoryInterfaces,
+                new TimingHandler(bean, meterRegistry));
+    }
+
+    private static class TimingHandler implements InvocationHandler {
+
+        private final Object target;
+        private final ObjectProvider<MeterRegistry> meterRegistry;
+
+        // [0] success, [1] error
+        private final Map<Method, Timer[]> timers = new ConcurrentHashMap<>();
+
+        private TimingHandler(Object target, ObjectProvider<MeterRegistry> meterRegistry) {
+            this.target = target;
+            this.meterRegistry = meterRegistry;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class) {
+                return method.invoke(target, args);
+            }
+
+            Timer[] methodTimers = timers.get(method);
+            if (methodTimers == null) methodTimers = timers.computeIfAbsent(method, this::createTimers);
+
+            long start = System.nanoTime();
+            try {
+                Object result = method.invoke(target, args);
+                methodTimers[0].record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                return result;
+            } catch (InvocationTargetException e) {
+                methodTimers[1].record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                throw e.getCause();
+            }
+        }
+
+        private Timer[] createTimers(Method method) {
+            MeterRegistry registry = meterRegistry.getObject();
+            String repository = method.getDeclaringClass().getSimpleName();
+            return new Timer[]{
+                    timer(registry, repository, method.getName(), "success"),
+                    timer(registry, repository, method.getName(), "error")
+            };
+        }
+
+        private Timer timer(MeterRegistry registry, String repository, String method, String outcome) {
+            return Timer.builder("repository.invocations")
+                    .description("Repository method latency")
+                    .tag("repository", repository)
+                    .tag("method", method)
+                    .tag("outcome", outcome)
+                    .register(registry);
+        }
+    }
+}
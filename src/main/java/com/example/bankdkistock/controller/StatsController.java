@@ -0,0 +1,78 @@
+package com.example.bankdkistock.controller;
+
+import com.example.bankdkistock.dto.ApiResponse;
+import com.example.bankdkistock.dto.CacheStatsDTO;
+import com.example.bankdkistock.service.ImageCleanupService;
+import com.example.bankdkistock.service.ImageGarbageCollector;
+import com.example.bankdkistock.service.ImageVariantService;
+import com.example.bankdkistock.service.StockEventService;
+import com.example.bankdkistock.service.StockLedgerService;
+import com.example.bankdkistock.service.StockQuantityCoalescer;
+import com.example.bankdkistock.util.CacheStatsRegistry;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/internal/stats")
+public class StatsController {
+
+    private final CacheStatsRegistry cacheStatsRegistry;
+    private final ImageVariantService imageVariantService;
+    private final StockQuantityCoalescer stockQuantityCoalescer;
+    private final StockEventService stockEventService;
+    private final ImageCleanupService imageCleanupService;
+    private final ImageGarbageCollector imageGarbageCollector;
+    private final StockLedgerService stockLedgerService;
+
+    public StatsController(CacheStatsRegistry cacheStatsRegistry, ImageVariantService imageVariantService,
+                           StockQuantityCoalescer stockQuantityCoalescer, StockEventService stockEventService,
+                           ImageCleanupService imageCleanupService, ImageGarbageCollector imageGarbageCollector,
+                           StockLedgerService stockLedgerService) {
+        this.cacheStatsRegistry = cacheStatsRegistry;
+        this.imageVariantService = imageVariantService;
+        this.stockQuantityCoalescer = stockQuantityCoalescer;
+        this.stockEventService = stockEventService;
+        this.imageCleanupService = imageCleanupService;
+        this.imageGarbageCollector = imageGarbageCollector;
+        this.stockLedgerService = stockLedgerService;
+    }
+
+    @GetMapping("/caches")
+    public ResponseEntity<ApiResponse<Map<String, CacheStatsDTO>>> cacheStats() {
+        return ResponseEntity.ok(new ApiResponse<>("success", "Cache statistics retrieved successfully", cacheStatsRegistry.snapshot()));
+    }
+
+    @GetMapping("/image-variants")
+    public ResponseEntity<ApiResponse<Map<String, Long>>> imageVariantStats() {
+        return ResponseEntity.ok(new ApiResponse<>("success", "Image variant statistics retrieved successfully", imageVariantService.stats()));
+    }
+
+    @GetMapping("/image-cleanup")
+    public ResponseEntity<ApiResponse<Map<String, Long>>> imageCleanupStats() {
+        return ResponseEntity.ok(new ApiResponse<>("success", "Image cleanup statistics retrieved successfully", imageCleanupService.stats()));
+    }
+
+    @GetMapping("/image-gc")
+    public ResponseEntity<ApiResponse<Map<String, Long>>> imageGcStats() {
+        return ResponseEntity.ok(new ApiResponse<>("success", "Orphan image collector statistics retrieved successfully", imageGarbageCollector.stats()));
+    }
+
+    @GetMapping("/stock-quantity")
+    public ResponseEntity<ApiResponse<Map<String, Long>>> stockQuantityStats() {
+        return ResponseEntity.ok(new ApiResponse<>("success", "Stock quantity statistics retrieved successfully", stockQuantityCoalescer.stats()));
+    }
+
+    @GetMapping("/stock-events")
+    public ResponseEntity<ApiResponse<Map<String, Long>>> stockEventStats() {
+        return ResponseEntity.ok(new ApiResponse<>("success", "Stock event statistics retrieved successfully", stockEventService.stats()));
+    }
+
+    @GetMapping("/stock-ledger")
+    public ResponseEntity<ApiResponse<Map<String, Long>>> stockLedgerStats() {
+        return ResponseEntity.ok(new ApiResponse<>("success", "Stock ledger statistics retrieved successfully", stockLedgerService.stats()));
+    }
+}
@@ -1,12 +1,33 @@
 package com.example.bankdkistock.controller;
 
 import com.example.bankdkistock.dto.ApiResponse;
+import com.example.bankdkistock.dto.AutocompleteSuggestionDTO;
+import com.example.bankdkistock.dto.CursorPageDTO;
+import com.example.bankdkistock.dto.ImportResultDTO;
 import com.example.bankdkistock.dto.RequestStockDTO;
 import com.example.bankdkistock.dto.ResponseStockDTO;
+import com.example.bankdkistock.dto.StockFilterDTO;
+import com.example.bankdkistock.dto.StockQuantityAsOfDTO;
+import com.example.bankdkistock.service.StockAutocompleteIndex;
+import com.example.bankdkistock.service.StockEventService;
+import com.example.bankdkistock.service.StockImportService;
+import com.example.bankdkistock.service.StockLedgerService;
 import com.example.bankdkistock.service.StockService;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.util.List;
 
 @RestController
@@ -14,9 +35,19 @@ import java.util.List;
 public class StockController {
 
     private final StockService stockService;
+    private final StockImportService stockImportService;
+    private final StockAutocompleteIndex stockAutocompleteIndex;
+    private final StockEventService stockEventService;
+    private final StockLedgerService stockLedgerService;
 
-    public StockController(StockService stockService) {
+    public StockController(StockService stockService, StockImportService stockImportService,
+                           StockAutocompleteIndex stockAutocompleteIndex, StockEventService stockEventService,
+                           StockLedgerService stockLedgerService) {
         this.stockService = stockService;
+        this.stockImportService = stockImportService;
+        this.stockAutocompleteIndex = stockAutocompleteIndex;
+        this.stockEventService = stockEventService;
+        this.stockLedgerService = stockLedgerService;
     }
 
     @PostMapping("/create")
@@ -29,10 +60,77 @@ public class StockController {
         }
     }
 
+    @PostMapping("/import")
+    public ResponseEntity<ApiResponse<ImportResultDTO>> importStocks(@RequestParam("file") MultipartFile file,
+                                                                     @RequestParam(required = false) String format) {
+        try {
+            ImportResultDTO result = stockImportService.importStocks(file, format);
+            return ResponseEntity.ok(new ApiResponse<>("success", "Stock import finished", result));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(new ApiResponse<>("failed", e.getMessage(), null));
+        }
+    }
+
     @GetMapping("/list")
-    public ResponseEntity<ApiResponse<List<ResponseStockDTO>>> listAllStocks() {
-        List<ResponseStockDTO> stocks = stockService.listAllStocks();
-        return ResponseEntity.ok(new ApiResponse<>("success", "Stocks retrieved successfully", stocks));
+    public ResponseEntity<ApiResponse<CursorPageDTO<ResponseStockDTO>>> listStocks(@ModelAttribute StockFilterDTO filter,
+                                                                                   WebRequest webRequest,
+                                                                                   HttpServletResponse response) {
+        try {
+            cacheWithRevalidation(response);
+            // ETag is per URL, so the table version alone covers every filter and cursor
+            CursorPageDTO<ResponseStockDTO> stocks = stockService.listStocks(filter,
+                    version -> webRequest.checkNotModified("W/\"v" + version + "\""));
+            if (stocks == null) {
+                // 304 has already been written
+                return null;
+            }
+            return ResponseEntity.ok(new ApiResponse<>("success", "Stocks retrieved successfully", stocks));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ApiResponse<>("failed", e.getMessage(), null));
+        }
+    }
+
+    @GetMapping("/autocomplete")
+    public ResponseEntity<ApiResponse<List<AutocompleteSuggestionDTO>>> autocomplete(@RequestParam String q,
+                                                                                     @RequestParam(defaultValue = "all") String field,
+                                                                                     @RequestParam(defaultValue = "10") int limit) {
+        List<AutocompleteSuggestionDTO> suggestions = stockAutocompleteIndex.suggest(q, field, Math.min(Math.max(limit, 1), 50));
+        return ResponseEntity.ok(new ApiResponse<>("success", "Suggestions retrieved successfully", suggestions));
+    }
+
+    // Server-Sent Events: created/updated/deleted, resumable with the Last-Event-ID header (or ?lastEventId=)
+    @GetMapping("/events")
+    public ResponseEntity<?> streamEvents(@RequestHeader(value = "Last-Event-ID", required = false) Long lastEventIdHeader,
+                                          @RequestParam(required = false) Long lastEventId) {
+        try {
+            SseEmitter emitter = stockEventService.subscribe(lastEventIdHeader != null ? lastEventIdHeader : lastEventId);
+            return ResponseEntity.ok(emitter);
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(new ApiResponse<>("failed", e.getMessage(), null));
+        }
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<ApiResponse<Object>> exportStocks(@RequestParam(defaultValue = "ndjson") String format,
+                                                            HttpServletResponse response) throws IOException {
+        String contentType = switch (format) {
+            case "ndjson" -> "application/x-ndjson";
+            case "csv" -> "text/csv";
+            default -> null;
+        };
+        if (contentType == null) {
+            return ResponseEntity.badRequest().body(new ApiResponse<>("failed", "Unsupported export format: " + format, null));
+        }
+
+        response.setContentType(contentType);
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader("Content-Disposition", "attachment; filename=\"stocks." + format + "\"");
+        stockService.exportStocks(format, response.getOutputStream());
+
+        // Body has already been streamed to the response
+        return null;
     }
 
     @PutMapping("/update/{id}")
@@ -46,17 +144,78 @@ public class StockController {
         }
     }
 
+    @PostMapping("/increment/{id}")
+    public ResponseEntity<ApiResponse<Object>> incrementStock(@PathVariable Long id, @RequestParam int amount,
+                                                              @RequestParam(required = false) Boolean coalesce) {
+        return adjustStock(id, amount, false, coalesce);
+    }
+
+    @PostMapping("/decrement/{id}")
+    public ResponseEntity<ApiResponse<Object>> decrementStock(@PathVariable Long id, @RequestParam int amount,
+                                                              @RequestParam(required = false) Boolean coalesce) {
+        return adjustStock(id, amount, true, coalesce);
+    }
+
     @GetMapping("/detail/{id}")
-    public ResponseEntity<ApiResponse<ResponseStockDTO>> getStockDetail(@PathVariable Long id) {
+    public ResponseEntity<ApiResponse<ResponseStockDTO>> getStockDetail(@PathVariable Long id, WebRequest webRequest,
+                                                                        HttpServletResponse response) {
         ResponseStockDTO stock = stockService.getStockById(id);
+        if (stock != null) {
+            cacheWithRevalidation(response);
+            LocalDateTime modifiedAt = stock.getUpdatedAt() != null ? stock.getUpdatedAt() : stock.getCreatedAt();
+            // Every write sets updated_at, so id plus its microseconds identifies the version of the row
+            long modifiedMicros = modifiedAt.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + modifiedAt.getNano() / 1_000;
+            if (webRequest.checkNotModified("W/\"" + id + "-" + modifiedMicros + "\"",
+                    modifiedAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli())) {
+                return null;
+            }
+        }
         String message = stock == null ? "Data not found" : "Stock retrieved successfully";
         return ResponseEntity.ok(new ApiResponse<>("success", message, stock));
     }
 
+    // Quantity from the movement ledger, e.g. ?at=2024-06-30T23:59:59; also answers for deleted stocks
+    @GetMapping("/quantity-as-of/{id}")
+    public ResponseEntity<ApiResponse<StockQuantityAsOfDTO>> getQuantityAsOf(@PathVariable Long id,
+                                                                             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime at) {
+        StockQuantityAsOfDTO quantity = stockLedgerService.getQuantityAsOf(id, at);
+        String message = quantity == null ? "Data not found" : "Stock quantity retrieved successfully";
+        return ResponseEntity.ok(new ApiResponse<>("success", message, quantity));
+    }
+
+    // Browsers keep the body but check back every time, Spring Security would otherwise send no-store. ETags
+    // are weak and the cache varies on Accept because the same version is served as JSON, CBOR or Smile,
+    // gzipped or not.
+    private void cacheWithRevalidation(HttpServletResponse response) {
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+    }
+
+    private ResponseEntity<ApiResponse<Object>> adjustStock(Long id, int amount, boolean decrement, Boolean coalesce) {
+        try {
+            ResponseStockDTO result = stockService.adjustQuantity(id, amount, decrement, coalesce);
+            String message = result == null ? "Data not found" : "Stock quantity updated successfully";
+            return ResponseEntity.ok(new ApiResponse<>("success", message, result));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(new ApiResponse<>("failed", e.getMessage(), null));
+        }
+    }
+
     @DeleteMapping("/delete/{id}")
     public ResponseEntity<ApiResponse<Object>> deleteStock(@PathVariable Long id) {
         boolean isDeleted = stockService.deleteStock(id);
         String message = isDeleted ? "Stock deleted successfully" : "Data not found";
         return ResponseEntity.ok(new ApiResponse<>("success", message, null));
     }
+
+    // Body is a JSON array of ids, the response lists the ids that existed and were deleted
+    @PostMapping("/bulk-delete")
+    public ResponseEntity<ApiResponse<List<Long>>> deleteStocks(@RequestBody List<Long> ids) {
+        try {
+            List<Long> deleted = stockService.deleteStocks(ids);
+            return ResponseEntity.ok(new ApiResponse<>("success", deleted.size() + " stocks deleted successfully", deleted));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ApiResponse<>("failed", e.getMessage(), null));
+        }
+    }
 }
@@ -0,0 +1,12 @@
+package com.example.bankdkistock.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class AutocompleteSuggestionDTO {
+    private Long id;
+    private String namaBarang;
+    private String nomorSeriBarang;
+}
@@ -0,0 +1,17 @@
+package com.example.bankdkistock.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class ImportResultDTO {
+    private long totalRows;
+    private long inserted;
+    private long failed;
+    private long durationMs;
+    private double rowsPerSecond;
+    private List<ImportRowErrorDTO> failures;
+}
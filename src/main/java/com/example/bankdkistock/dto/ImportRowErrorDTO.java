@@ -0,0 +1,12 @@
+package com.example.bankdkistock.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class ImportRowErrorDTO {
+    private long row;
+    private String nomorSeriBarang;
+    private String message;
+}
@@ -1,6 +1,7 @@
 package com.example.bankdkistock.dto;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import com.example.bankdkistock.util.RawJsonSerializer;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import lombok.Builder;
 import lombok.Data;
 
@@ -13,8 +14,12 @@ public class ResponseStockDTO {
     private String namaBarang;
     private Integer jumlahStok;
     private String nomorSeriBarang;
-    private JsonNode additionalInfo;
+    // jsonb text written into JSON responses as-is, it is validated once when the stock is saved
+    @JsonSerialize(using = RawJsonSerializer.class)
+    private String additionalInfo;
     private String gambarBarang;
+    private String gambarBarangThumbnail;
+    private String gambarBarangMedium;
     private LocalDateTime createdAt;
     private Long createdBy;
     private LocalDateTime updatedAt;
@@ -0,0 +1,26 @@
+package com.example.bankdkistock.dto;
+
+import com.example.bankdkistock.model.StockEventPosition;
+import com.example.bankdkistock.util.RawJsonSerializer;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+public class StockEventDTO {
+    private Long id;
+    // Delivery order, ids alone are not commit order
+    @JsonIgnore
+    private StockEventPosition position;
+    // created, updated or deleted
+    private String type;
+    private Long stockId;
+    private LocalDateTime occurredAt;
+    // Row snapshot built by the stocks trigger, already in the response field names
+    @JsonSerialize(using = RawJsonSerializer.class)
+    private String stock;
+}
@@ -0,0 +1,21 @@
+package com.example.bankdkistock.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class StockFilterDTO {
+    private String namaBarang;
+    private Integer minJumlahStok;
+    private Integer maxJumlahStok;
+    private Long createdBy;
+    // JSON document additional_info must contain, e.g. {"warna":"merah"}
+    private String attributes;
+    // Key paths into additional_info, "garansi.vendor:PT Sumber Makmur" to match a value or "garansi.vendor" to require the key
+    private List<String> attribute;
+    private String cursor;
+    private Integer limit;
+}
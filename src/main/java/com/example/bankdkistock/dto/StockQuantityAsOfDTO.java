@@ -0,0 +1,17 @@
+package com.example.bankdkistock.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+public class StockQuantityAsOfDTO {
+    private Long stockId;
+    private LocalDateTime asOf;
+    private Integer jumlahStok;
+    // Snapshot the answer started from, null when it was replayed from the first movement
+    private LocalDateTime snapshotAt;
+    private Long movementsReplayed;
+}
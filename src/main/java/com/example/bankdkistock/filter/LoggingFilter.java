@@ -1,5 +1,6 @@
 package com.example.bankdkistock.filter;
 
+import com.example.bankdkistock.config.HttpLoggingProperties;
 import jakarta.servlet.*;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
@@ -7,27 +8,63 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
+import java.util.Comparator;
 import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
 
 public class LoggingFilter implements Filter {
 
     private static final Logger logger = LogManager.getLogger(LoggingFilter.class);
 
+    private final int maxBodyBytes;
+    private final double defaultSampleRate;
+    private final List<Map.Entry<String, Double>> routeSampleRates;
+
+    public LoggingFilter(HttpLoggingProperties properties) {
+        this.maxBodyBytes = properties.getMaxBodyBytes();
+        this.defaultSampleRate = properties.getSampleRate();
+        this.routeSampleRates = properties.getRouteSampleRates().entrySet().stream()
+                .sorted(Comparator.comparingInt((Map.Entry<String, Double> route) -> route.getKey().length()).reversed())
+                .map(route -> Map.entry(route.getKey(), route.getValue()))
+                .toList();
+    }
+
     @Override
     public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
             throws IOException, ServletException {
 
         HttpServletRequest httpServletRequest = (HttpServletRequest) request;
-        ResponseWrapper responseWrapper = new ResponseWrapper((HttpServletResponse) response);
+        HttpServletResponse httpServletResponse = (HttpServletResponse) response;
 
         logRequest(httpServletRequest);
 
-        chain.doFilter(request, responseWrapper);
+        if (!isSampled(httpServletRequest.getRequestURI())) {
+            chain.doFilter(request, response);
+            logger.info("Outgoing Response: [Status: {}]", httpServletResponse.getStatus());
+            return;
+        }
 
-        logResponse(responseWrapper);
+        ResponseWrapper responseWrapper = new ResponseWrapper(httpServletResponse, maxBodyBytes);
+        try {
+            chain.doFilter(request, responseWrapper);
+        } finally {
+            responseWrapper.flushWriter();
+            logResponse(responseWrapper);
+        }
+    }
 
-        writeResponseBack(responseWrapper, (HttpServletResponse) response);
+    private boolean isSampled(String uri) {
+        double sampleRate = defaultSampleRate;
+        for (Map.Entry<String, Double> route : routeSampleRates) {
+            if (uri.startsWith(route.getKey())) {
+                sampleRate = route.getValue();
+                break;
+            }
+        }
+
+        return sampleRate >= 1.0 || (sampleRate > 0.0 && ThreadLocalRandom.current().nextDouble() < sampleRate);
     }
 
     private void logRequest(HttpServletRequest request) {
@@ -44,14 +81,14 @@ public class LoggingFilter implements Filter {
     }
 
     private void logResponse(ResponseWrapper responseWrapper) {
-        String responseBody = new String(responseWrapper.getResponseBody(), StandardCharsets.UTF_8);
-        logger.info("Outgoing Response: [Status: {}, Body: {}]", responseWrapper.getStatus(), responseBody);
-    }
-
-    private void writeResponseBack(ResponseWrapper responseWrapper, HttpServletResponse response) throws IOException {
-        byte[] responseBody = responseWrapper.getResponseBody();
-        response.setContentLength(responseBody.length);
-        response.getOutputStream().write(responseBody);
+        long totalBytes = responseWrapper.getTotalBytes();
+        String responseBody = responseWrapper.getCapturedBody();
+        if (totalBytes > maxBodyBytes) {
+            logger.info("Outgoing Response: [Status: {}, Body ({} of {} bytes): {}]",
+                    responseWrapper.getStatus(), maxBodyBytes, totalBytes, responseBody);
+        } else {
+            logger.info("Outgoing Response: [Status: {}, Body: {}]", responseWrapper.getStatus(), responseBody);
+        }
     }
 
     @Override
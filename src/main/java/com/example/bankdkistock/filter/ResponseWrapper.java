@@ -5,55 +5,118 @@ import jakarta.servlet.WriteListener;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpServletResponseWrapper;
 
-import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 
+/**
+ * Passes every byte straight through to the client while keeping a copy of at most
+ * {@code captureLimit} leading bytes for logging.
+ */
 public class ResponseWrapper extends HttpServletResponseWrapper {
 
-    private final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-    private final PrintWriter writer = new PrintWriter(outputStream);
-    private final ServletOutputStream servletOutputStream = new CachedBodyServletOutputStream(outputStream);
+    private final byte[] captured;
+    private int capturedLength;
+    private long totalBytes;
 
-    public ResponseWrapper(HttpServletResponse response) {
+    private TeeServletOutputStream outputStream;
+    private PrintWriter writer;
+
+    public ResponseWrapper(HttpServletResponse response, int captureLimit) {
         super(response);
+        this.captured = new byte[Math.max(captureLimit, 0)];
     }
 
     @Override
-    public ServletOutputStream getOutputStream() {
-        return servletOutputStream;
+    public ServletOutputStream getOutputStream() throws IOException {
+        if (outputStream == null) {
+            outputStream = new TeeServletOutputStream(getResponse().getOutputStream());
+        }
+        return outputStream;
     }
 
     @Override
-    public PrintWriter getWriter() {
+    public PrintWriter getWriter() throws IOException {
+        if (writer == null) {
+            String encoding = getCharacterEncoding();
+            Charset charset = encoding != null ? Charset.forName(encoding) : StandardCharsets.ISO_8859_1;
+            writer = new PrintWriter(new OutputStreamWriter(getOutputStream(), charset));
+        }
         return writer;
     }
 
-    public byte[] getResponseBody() {
-        writer.flush();
-        return outputStream.toByteArray();
+    @Override
+    public void flushBuffer() throws IOException {
+        if (writer != null) writer.flush();
+        super.flushBuffer();
+    }
+
+    public void flushWriter() {
+        if (writer != null) writer.flush();
+    }
+
+    public String getCapturedBody() {
+        String encoding = getCharacterEncoding();
+        Charset charset = encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8;
+        return new String(captured, 0, capturedLength, charset);
+    }
+
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    private void capture(byte[] bytes, int offset, int length) {
+        int copy = Math.min(length, captured.length - capturedLength);
+        if (copy > 0) {
+            System.arraycopy(bytes, offset, captured, capturedLength, copy);
+            capturedLength += copy;
+        }
+        totalBytes += length;
     }
 
-    private static class CachedBodyServletOutputStream extends ServletOutputStream {
+    private class TeeServletOutputStream extends ServletOutputStream {
 
-        private final ByteArrayOutputStream byteArrayOutputStream;
+        private final ServletOutputStream delegate;
 
-        public CachedBodyServletOutputStream(ByteArrayOutputStream byteArrayOutputStream) {
-            this.byteArrayOutputStream = byteArrayOutputStream;
+        private TeeServletOutputStream(ServletOutputStream delegate) {
+            this.delegate = delegate;
         }
 
         @Override
         public boolean isReady() {
-            return true;
+            return delegate.isReady();
         }
 
         @Override
         public void setWriteListener(WriteListener listener) {
-            //
+            delegate.setWriteListener(listener);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            delegate.write(b);
+            if (capturedLength < captured.length) {
+                captured[capturedLength++] = (byte) b;
+            }
+            totalBytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            delegate.write(b, off, len);
+            capture(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            delegate.flush();
         }
 
         @Override
-        public void write(int b) {
-            byteArrayOutputStream.write(b);
+        public void close() throws IOException {
+            delegate.close();
         }
     }
 }
@@ -0,0 +1,14 @@
+package com.example.bankdkistock.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// Row of image_cleanup_queue
+@Getter
+@AllArgsConstructor
+public class ImageCleanupTask {
+    private long id;
+    private String path;
+    private boolean referenced;
+    private int attempts;
+}
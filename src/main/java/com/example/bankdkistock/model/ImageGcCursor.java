@@ -0,0 +1,12 @@
+package com.example.bankdkistock.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// Row of image_gc_state
+@Getter
+@AllArgsConstructor
+public class ImageGcCursor {
+    private String shard;
+    private String lastName;
+}
@@ -0,0 +1,30 @@
+package com.example.bankdkistock.model;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+// Place of an event in the change feed: ordered by writing transaction, then by id within it
+@Getter
+@AllArgsConstructor
+@EqualsAndHashCode
+@ToString
+public class StockEventPosition implements Comparable<StockEventPosition> {
+
+    public static final StockEventPosition START = new StockEventPosition(0, 0);
+    public static final StockEventPosition END = new StockEventPosition(Long.MAX_VALUE, Long.MAX_VALUE);
+
+    private long xid;
+    private long id;
+
+    @Override
+    public int compareTo(StockEventPosition other) {
+        int byXid = Long.compare(xid, other.xid);
+        return byXid != 0 ? byXid : Long.compare(id, other.id);
+    }
+
+    public boolean isAfter(StockEventPosition other) {
+        return compareTo(other) > 0;
+    }
+}
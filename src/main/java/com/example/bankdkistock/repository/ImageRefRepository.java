@@ -0,0 +1,54 @@
+package com.example.bankdkistock.repository;
+
+import com.example.bankdkistock.model.ImageCleanupTask;
+import com.example.bankdkistock.model.ImageGcCursor;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+public interface ImageRefRepository {
+
+    void acquire(String hash, String path);
+
+    Optional<Integer> decrement(String path);
+
+    void delete(String path);
+
+    List<String> findPendingVariants(int maxAttempts, int limit);
+
+    void markVariantsReady(String path);
+
+    void recordVariantFailure(String path);
+
+    void enqueueCleanup(String path, boolean referenced);
+
+    // Due tasks, locked for the rest of the transaction and skipped by other instances
+    List<ImageCleanupTask> claimCleanup(int maxAttempts, int limit);
+
+    // Current reference count, with the row locked so a concurrent upload of the same file waits for the cleanup
+    Optional<Integer> lockRefCount(String path);
+
+    void completeCleanup(long id);
+
+    void retryCleanup(long id, LocalDateTime nextAttemptAt, String error);
+
+    long countPendingCleanup(int maxAttempts);
+
+    long countFailedCleanup(int maxAttempts);
+
+    // Empty while another instance holds the collector's row lock
+    Optional<ImageGcCursor> lockGcCursor();
+
+    void saveGcCursor(String shard, String lastName);
+
+    // updated_at of the reference rows that exist for the given paths, locked until the end of the transaction
+    Map<String, LocalDateTime> lockRefs(Collection<String> paths);
+
+    void resetRefCount(String path);
+
+    // Adds a zero-count row so the cleanup can lock it, false when the hash or path already has one
+    boolean insertUnreferenced(String hash, String path);
+}
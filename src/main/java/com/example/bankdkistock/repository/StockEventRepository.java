@@ -0,0 +1,22 @@
+package com.example.bankdkistock.repository;
+
+import com.example.bankdkistock.dto.StockEventDTO;
+import com.example.bankdkistock.model.StockEventPosition;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public interface StockEventRepository {
+
+    // Newest event of a finished transaction, where a live feed starts
+    StockEventPosition latestPosition();
+
+    // Empty when the event was pruned or never existed
+    Optional<StockEventPosition> findPosition(long id);
+
+    // Events after after and up to upTo in delivery order, only from transactions no snapshot can still see running
+    List<StockEventDTO> findAfter(StockEventPosition after, StockEventPosition upTo, int limit);
+
+    int deleteOlderThan(LocalDateTime cutoff);
+}
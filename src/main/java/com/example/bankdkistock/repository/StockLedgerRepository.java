@@ -0,0 +1,28 @@
+package com.example.bankdkistock.repository;
+
+import com.example.bankdkistock.dto.StockQuantityAsOfDTO;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public interface StockLedgerRepository {
+
+    // Empty when the stock had no movement at or before asOf
+    Optional<StockQuantityAsOfDTO> quantityAsOf(Long stockId, LocalDateTime asOf);
+
+    // Transaction-scoped, false while another instance holds it
+    boolean tryLock(long key);
+
+    Optional<LocalDateTime> lastSnapshotAt();
+
+    // Writes snapshot rows at snapshotAt for every stock that moved after previousSnapshotAt, returns the row count
+    int createSnapshot(LocalDateTime previousSnapshotAt, LocalDateTime snapshotAt);
+
+    List<String> findPartitions();
+
+    void createPartition(String name, LocalDate from, LocalDate to);
+
+    void detachPartition(String name);
+}
@@ -1,17 +1,40 @@
 package com.example.bankdkistock.repository;
 
+import com.example.bankdkistock.dto.StockFilterDTO;
 import com.example.bankdkistock.model.Stock;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 public interface StockRepository {
 
     Stock save(Stock stock);
 
+    int[] batchInsert(List<Stock> stocks);
+
     List<Stock> findAll();
 
+    List<Stock> findPage(StockFilterDTO filter, LocalDateTime cursorCreatedAt, Long cursorId, int limit);
+
     Optional<Stock> findById(Long id);
 
-    void delete(Stock stock);
+    // Changes with every committed write to stocks, without scanning it
+    long tableVersion();
+
+    // Empty when the stock does not exist or the change would take jumlah_stok below zero
+    Optional<Stock> adjustQuantity(Long id, int delta, Long updatedBy, LocalDateTime updatedAt);
+
+    void streamAll(int fetchSize, Consumer<Stock> consumer);
+
+    void streamCreated(LocalDateTime createdAt, Long createdBy, int fetchSize, Consumer<Stock> consumer);
+
+    // Which of the given image paths are still set as gambar_barang on some stock
+    Set<String> findReferencedImages(Collection<String> paths);
+
+    // Deletes the ids that exist and queues the files of images nobody references any more, returns the deleted ids
+    List<Long> deleteAll(Collection<Long> ids);
 }
\ No newline at end of file
@@ -0,0 +1,201 @@
+package com.example.bankdkistock.repository.impl;
+
+import com.example.bankdkistock.model.ImageCleanupTask;
+import com.example.bankdkistock.model.ImageGcCursor;
+import com.example.bankdkistock.repository.ImageRefRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+@Repository
+@Transactional
+public class ImageRefRepositoryImpl implements ImageRefRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public void acquire(String hash, String path) {
+        entityManager.createNativeQuery(
+                        "INSERT INTO image_refs (hash, path, ref_count, created_at, updated_at) " +
+                                "VALUES (:hash, :path, 1, :now, :now) " +
+                                "ON CONFLICT (hash) DO UPDATE SET ref_count = image_refs.ref_count + 1, updated_at = :now")
+                .setParameter("hash", hash)
+                .setParameter("path", path)
+                .setParameter("now", LocalDateTime.now())
+                .executeUpdate();
+    }
+
+    @Override
+    public Optional<Integer> decrement(String path) {
+        List<?> result = entityManager.createNativeQuery(
+                        "UPDATE image_refs SET ref_count = ref_count - 1, updated_at = :now WHERE path = :path RETURNING ref_count")
+                .setParameter("path", path)
+                .setParameter("now", LocalDateTime.now())
+                .getResultList();
+
+        return result.stream().findFirst().map(count -> ((Number) count).intValue());
+    }
+
+    @Override
+    public void delete(String path) {
+        entityManager.createNativeQuery("DELETE FROM image_refs WHERE path = :path")
+                .setParameter("path", path)
+                .executeUpdate();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<String> findPendingVariants(int maxAttempts, int limit) {
+        return entityManager.createNativeQuery(
+                        "SELECT path FROM image_refs WHERE variants_ready = FALSE AND variant_attempts < :maxAttempts " +
+                                "ORDER BY created_at LIMIT :limit")
+                .setParameter("maxAttempts", maxAttempts)
+                .setParameter("limit", limit)
+                .getResultList();
+    }
+
+    @Override
+    public void markVariantsReady(String path) {
+        entityManager.createNativeQuery("UPDATE image_refs SET variants_ready = TRUE WHERE path = :path")
+                .setParameter("path", path)
+                .executeUpdate();
+    }
+
+    @Override
+    public void recordVariantFailure(String path) {
+        entityManager.createNativeQuery("UPDATE image_refs SET variant_attempts = variant_attempts + 1 WHERE path = :path")
+                .setParameter("path", path)
+                .executeUpdate();
+    }
+
+    @Override
+    public void enqueueCleanup(String path, boolean referenced) {
+        entityManager.createNativeQuery(
+                        "INSERT INTO image_cleanup_queue (path, referenced, next_attempt_at, created_at) " +
+                                "VALUES (:path, :referenced, :now, :now)")
+                .setParameter("path", path)
+                .setParameter("referenced", referenced)
+                .setParameter("now", LocalDateTime.now())
+                .executeUpdate();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<ImageCleanupTask> claimCleanup(int maxAttempts, int limit) {
+        List<Object[]> rows = entityManager.createNativeQuery(
+                        "SELECT id, path, referenced, attempts FROM image_cleanup_queue " +
+                                "WHERE next_attempt_at <= :now AND attempts < :maxAttempts " +
+                                "ORDER BY next_attempt_at LIMIT :limit FOR UPDATE SKIP LOCKED")
+                .setParameter("now", LocalDateTime.now())
+                .setParameter("maxAttempts", maxAttempts)
+                .setParameter("limit", limit)
+                .getResultList();
+
+        return rows.stream()
+                .map(row -> new ImageCleanupTask(((Number) row[0]).longValue(), (String) row[1], (Boolean) row[2],
+                        ((Number) row[3]).intValue()))
+                .toList();
+    }
+
+    @Override
+    public Optional<Integer> lockRefCount(String path) {
+        List<?> result = entityManager.createNativeQuery("SELECT ref_count FROM image_refs WHERE path = :path FOR UPDATE")
+                .setParameter("path", path)
+                .getResultList();
+
+        return result.stream().findFirst().map(count -> ((Number) count).intValue());
+    }
+
+    @Override
+    public void completeCleanup(long id) {
+        entityManager.createNativeQuery("DELETE FROM image_cleanup_queue WHERE id = :id")
+                .setParameter("id", id)
+                .executeUpdate();
+    }
+
+    @Override
+    public void retryCleanup(long id, LocalDateTime nextAttemptAt, String error) {
+        entityManager.createNativeQuery(
+                        "UPDATE image_cleanup_queue SET attempts = attempts + 1, next_attempt_at = :nextAttemptAt, " +
+                                "last_error = left(:error, 500) WHERE id = :id")
+                .setParameter("nextAttemptAt", nextAttemptAt)
+                .setParameter("error", error)
+                .setParameter("id", id)
+                .executeUpdate();
+    }
+
+    @Override
+    public long countPendingCleanup(int maxAttempts) {
+        return ((Number) entityManager.createNativeQuery("SELECT count(*) FROM image_cleanup_queue WHERE attempts < :maxAttempts")
+                .setParameter("maxAttempts", maxAttempts)
+                .getSingleResult()).longValue();
+    }
+
+    @Override
+    public long countFailedCleanup(int maxAttempts) {
+        return ((Number) entityManager.createNativeQuery("SELECT count(*) FROM image_cleanup_queue WHERE attempts >= :maxAttempts")
+                .setParameter("maxAttempts", maxAttempts)
+                .getSingleResult()).longValue();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Optional<ImageGcCursor> lockGcCursor() {
+        List<Object[]> rows = entityManager.createNativeQuery(
+                        "SELECT shard, last_name FROM image_gc_state WHERE id = 1 FOR UPDATE SKIP LOCKED")
+                .getResultList();
+
+        return rows.stream().findFirst().map(row -> new ImageGcCursor((String) row[0], (String) row[1]));
+    }
+
+    @Override
+    public void saveGcCursor(String shard, String lastName) {
+        entityManager.createNativeQuery("UPDATE image_gc_state SET shard = :shard, last_name = :lastName, updated_at = :now WHERE id = 1")
+                .setParameter("shard", shard)
+                .setParameter("lastName", lastName)
+                .setParameter("now", LocalDateTime.now())
+                .executeUpdate();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<String, LocalDateTime> lockRefs(Collection<String> paths) {
+        Map<String, LocalDateTime> refs = new HashMap<>();
+        if (paths.isEmpty()) return refs;
+
+        List<Object[]> rows = entityManager.createNativeQuery(
+                        "SELECT path, updated_at FROM image_refs WHERE path IN (:paths) ORDER BY path FOR UPDATE")
+                .setParameter("paths", paths)
+                .getResultList();
+        rows.forEach(row -> refs.put((String) row[0], ((Timestamp) row[1]).toLocalDateTime()));
+        return refs;
+    }
+
+    @Override
+    public void resetRefCount(String path) {
+        entityManager.createNativeQuery("UPDATE image_refs SET ref_count = 0 WHERE path = :path")
+                .setParameter("path", path)
+                .executeUpdate();
+    }
+
+    @Override
+    public boolean insertUnreferenced(String hash, String path) {
+        return entityManager.createNativeQuery(
+                        "INSERT INTO image_refs (hash, path, ref_count, created_at, updated_at) " +
+                                "VALUES (:hash, :path, 0, :now, :now) ON CONFLICT DO NOTHING")
+                .setParameter("hash", hash)
+                .setParameter("path", path)
+                .setParameter("now", LocalDateTime.now())
+                .executeUpdate() > 0;
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.bankdkistock.repository.impl;
+
+import com.example.bankdkistock.dto.StockEventDTO;
+import com.example.bankdkistock.model.StockEventPosition;
+import com.example.bankdkistock.repository.StockEventRepository;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+// Always runs on the primary, a lagging replica would make the feed skip events
+@Repository
+public class StockEventRepositoryImpl implements StockEventRepository {
+
+    // Oldest transaction that may still be running, every xid below it has committed or rolled back
+    private static final String HORIZON = "pg_snapshot_xmin(pg_current_snapshot())::text::bigint";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public StockEventRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public StockEventPosition latestPosition() {
+        return jdbcTemplate.query(
+                        "SELECT xid, id FROM stock_events WHERE xid < " + HORIZON + " ORDER BY xid DESC, id DESC LIMIT 1",
+                        (rs, rowNum) -> new StockEventPosition(rs.getLong("xid"), rs.getLong("id")))
+                .stream().findFirst().orElse(StockEventPosition.START);
+    }
+
+    @Override
+    public Optional<StockEventPosition> findPosition(long id) {
+        return jdbcTemplate.query("SELECT xid, id FROM stock_events WHERE id = ?",
+                        (rs, rowNum) -> new StockEventPosition(rs.getLong("xid"), rs.getLong("id")), id)
+                .stream().findFirst();
+    }
+
+    @Override
+    public List<StockEventDTO> findAfter(StockEventPosition after, StockEventPosition upTo, int limit) {
+        return jdbcTemplate.query(
+                "SELECT id, xid, event_type, stock_id, cast(payload as text) as payload, created_at FROM stock_events " +
+                        "WHERE (xid, id) > (?, ?) AND (xid, id) <= (?, ?) AND xid < " + HORIZON + " " +
+                        "ORDER BY xid, id LIMIT ?",
+                (rs, rowNum) -> StockEventDTO.builder()
+                        .id(rs.getLong("id"))
+                        .position(new StockEventPosition(rs.getLong("xid"), rs.getLong("id")))
+                        .type(rs.getString("event_type"))
+                        .stockId(rs.getLong("stock_id"))
+                        .stock(rs.getString("payload"))
+                        .occurredAt(rs.getTimestamp("created_at").toLocalDateTime())
+                        .build(),
+                after.getXid(), after.getId(), upTo.getXid(), upTo.getId(), limit);
+    }
+
+    @Override
+    public int deleteOlderThan(LocalDateTime cutoff) {
+        return jdbcTemplate.update("DELETE FROM stock_events WHERE created_at < ?", Timestamp.valueOf(cutoff));
+    }
+}
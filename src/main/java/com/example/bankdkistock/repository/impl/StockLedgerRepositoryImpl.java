@@ -0,0 +1,111 @@
+package com.example.bankdkistock.repository.impl;
+
+import com.example.bankdkistock.dto.StockQuantityAsOfDTO;
+import com.example.bankdkistock.repository.StockLedgerRepository;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+@Transactional
+public class StockLedgerRepositoryImpl implements StockLedgerRepository {
+
+    private static final String DEFAULT_PARTITION = "stock_movements_default";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public StockLedgerRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<StockQuantityAsOfDTO> quantityAsOf(Long stockId, LocalDateTime asOf) {
+        // One index probe for the snapshot, then only the movements after it (partitions before it are pruned)
+        String sql = "WITH snapshot AS (" +
+                "    SELECT snapshot_at, quantity FROM stock_snapshots WHERE stock_id = ? AND snapshot_at <= ? " +
+                "    ORDER BY snapshot_at DESC LIMIT 1" +
+                "), tail AS (" +
+                "    SELECT count(*) AS movements, coalesce(sum(delta), 0) AS delta FROM stock_movements " +
+                "    WHERE stock_id = ? AND created_at <= ? " +
+                "    AND created_at > coalesce((SELECT snapshot_at FROM snapshot), '-infinity'::timestamp)" +
+                ") SELECT (SELECT snapshot_at FROM snapshot) AS snapshot_at, (SELECT quantity FROM snapshot) AS quantity, " +
+                "tail.movements, tail.delta FROM tail WHERE tail.movements > 0 OR EXISTS (SELECT 1 FROM snapshot)";
+
+        Timestamp asOfTimestamp = Timestamp.valueOf(asOf);
+        return jdbcTemplate.query(sql, (rs, rowNum) -> {
+            Timestamp snapshotAt = rs.getTimestamp("snapshot_at");
+            return StockQuantityAsOfDTO.builder()
+                    .stockId(stockId)
+                    .asOf(asOf)
+                    .jumlahStok(rs.getInt("quantity") + rs.getInt("delta"))
+                    .snapshotAt(snapshotAt == null ? null : snapshotAt.toLocalDateTime())
+                    .movementsReplayed(rs.getLong("movements"))
+                    .build();
+        }, stockId, asOfTimestamp, stockId, asOfTimestamp).stream().findFirst();
+    }
+
+    @Override
+    public boolean tryLock(long key) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT pg_try_advisory_xact_lock(?)", Boolean.class, key));
+    }
+
+    @Override
+    public Optional<LocalDateTime> lastSnapshotAt() {
+        Timestamp snapshotAt = jdbcTemplate.queryForObject("SELECT max(snapshot_at) FROM stock_snapshot_runs", Timestamp.class);
+        return Optional.ofNullable(snapshotAt).map(Timestamp::toLocalDateTime);
+    }
+
+    @Override
+    public int createSnapshot(LocalDateTime previousSnapshotAt, LocalDateTime snapshotAt) {
+        Timestamp previous = previousSnapshotAt == null ? null : Timestamp.valueOf(previousSnapshotAt);
+        Timestamp at = Timestamp.valueOf(snapshotAt);
+
+        // Folds the movements of the last interval into each stock's previous snapshot, never the whole history
+        int stocks = jdbcTemplate.update(
+                "INSERT INTO stock_snapshots (stock_id, snapshot_at, quantity) " +
+                        "SELECT m.stock_id, ?, coalesce(s.quantity, 0) + sum(m.delta) " +
+                        "FROM stock_movements m " +
+                        "LEFT JOIN LATERAL (SELECT quantity FROM stock_snapshots p WHERE p.stock_id = m.stock_id " +
+                        "    ORDER BY p.snapshot_at DESC LIMIT 1) s ON TRUE " +
+                        "WHERE m.created_at > coalesce(cast(? as timestamp), '-infinity'::timestamp) AND m.created_at <= ? " +
+                        "GROUP BY m.stock_id, s.quantity",
+                at, previous, at);
+
+        jdbcTemplate.update("INSERT INTO stock_snapshot_runs (snapshot_at, stocks) VALUES (?, ?)", at, stocks);
+        return stocks;
+    }
+
+    @Override
+    public List<String> findPartitions() {
+        return jdbcTemplate.queryForList(
+                "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid " +
+                        "WHERE i.inhparent = 'stock_movements'::regclass ORDER BY c.relname", String.class);
+    }
+
+    @Override
+    public void createPartition(String name, LocalDate from, LocalDate to) {
+        // A new partition cannot be created while the default one holds rows of its range, so the default is
+        // taken out, its rows for the range are moved through the parent into the new partition, and it is put
+        // back. All in one transaction, writers wait on the parent's lock for the duration.
+        // Names and bounds are generated by StockLedgerService, never taken from a request
+        String range = "created_at >= '" + from + "' AND created_at < '" + to + "'";
+        jdbcTemplate.execute("ALTER TABLE stock_movements DETACH PARTITION " + DEFAULT_PARTITION);
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + name + " PARTITION OF stock_movements " +
+                "FOR VALUES FROM ('" + from + "') TO ('" + to + "')");
+        jdbcTemplate.execute("WITH moved AS (DELETE FROM " + DEFAULT_PARTITION + " WHERE " + range + " RETURNING *) " +
+                "INSERT INTO stock_movements SELECT * FROM moved");
+        jdbcTemplate.execute("ALTER TABLE stock_movements ATTACH PARTITION " + DEFAULT_PARTITION + " DEFAULT");
+    }
+
+    @Override
+    public void detachPartition(String name) {
+        jdbcTemplate.execute("ALTER TABLE stock_movements DETACH PARTITION " + name);
+    }
+}
@@ -1,27 +1,66 @@
 package com.example.bankdkistock.repository.impl;
 
+import com.example.bankdkistock.dto.StockFilterDTO;
 import com.example.bankdkistock.model.Stock;
 import com.example.bankdkistock.repository.StockRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.NoResultException;
 import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
 import jakarta.persistence.criteria.CriteriaBuilder;
 import jakarta.persistence.criteria.CriteriaQuery;
 import jakarta.persistence.criteria.Root;
-import jakarta.transaction.Transactional;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 @Repository
 @Transactional
 public class StockRepositoryImpl implements StockRepository {
 
+    private static final String COLUMNS = "id, nama_barang, jumlah_stok, nomor_seri_barang, " +
+            "cast(additional_info as jsonb) as additional_info, gambar_barang, created_at, created_by, updated_at, updated_by ";
+
+    private static final String SELECT_COLUMNS = "SELECT " + COLUMNS;
+
+    private static final String STREAM_COLUMNS = "SELECT id, nama_barang, jumlah_stok, nomor_seri_barang, cast(additional_info as text) as additional_info, " +
+            "gambar_barang, created_at, created_by, updated_at, updated_by ";
+
     @PersistenceContext
     private EntityManager entityManager;
 
+    private static final int MAX_ATTRIBUTE_FILTERS = 20;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    public StockRepositoryImpl(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+    }
+
     @Override
     public Stock save(Stock stock) {
         if (stock.getId() == null) {
@@ -59,6 +98,33 @@ public class StockRepositoryImpl implements StockRepository {
     }
 
     @Override
+    public int[] batchInsert(List<Stock> stocks) {
+        // ON CONFLICT DO NOTHING reports 0 for duplicate serial numbers instead of aborting the whole batch
+        String sql = "INSERT INTO stocks (nama_barang, jumlah_stok, nomor_seri_barang, additional_info, created_at, created_by) " +
+                "VALUES (?, ?, ?, cast(? as jsonb), ?, ?) ON CONFLICT (nomor_seri_barang) DO NOTHING";
+
+        return jdbcTemplate.batchUpdate(sql, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement statement, int i) throws SQLException {
+                Stock stock = stocks.get(i);
+                statement.setString(1, stock.getNamaBarang());
+                statement.setInt(2, stock.getJumlahStok());
+                statement.setString(3, stock.getNomorSeriBarang());
+                statement.setString(4, stock.getAdditionalInfo());
+                statement.setTimestamp(5, Timestamp.valueOf(stock.getCreatedAt()));
+                statement.setLong(6, stock.getCreatedBy());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return stocks.size();
+            }
+        });
+    }
+
+    // Read-only methods may be served by a replica (see ReplicaRoutingDataSource), unless they join a write transaction
+    @Override
+    @Transactional(readOnly = true)
     public List<Stock> findAll() {
         CriteriaBuilder cb = entityManager.getCriteriaBuilder();
         CriteriaQuery<Stock> query = cb.createQuery(Stock.class);
@@ -69,37 +135,292 @@ public class StockRepositoryImpl implements StockRepository {
     }
 
     @Override
+    @Transactional(readOnly = true)
+    @SuppressWarnings("unchecked")
+    public List<Stock> findPage(StockFilterDTO filter, LocalDateTime cursorCreatedAt, Long cursorId, int limit) {
+        StringBuilder sql = new StringBuilder(SELECT_COLUMNS).append("FROM stocks WHERE 1 = 1");
+        Map<String, Object> parameters = new HashMap<>();
+
+        if (filter.getNamaBarang() != null && !filter.getNamaBarang().isBlank()) {
+            sql.append(" AND lower(nama_barang) LIKE :namaBarang");
+            parameters.put("namaBarang", escapeLike(filter.getNamaBarang().toLowerCase()) + "%");
+        }
+        if (filter.getMinJumlahStok() != null) {
+            sql.append(" AND jumlah_stok >= :minJumlahStok");
+            parameters.put("minJumlahStok", filter.getMinJumlahStok());
+        }
+        if (filter.getMaxJumlahStok() != null) {
+            sql.append(" AND jumlah_stok <= :maxJumlahStok");
+            parameters.put("maxJumlahStok", filter.getMaxJumlahStok());
+        }
+        if (filter.getCreatedBy() != null) {
+            sql.append(" AND created_by = :createdBy");
+            parameters.put("createdBy", filter.getCreatedBy());
+        }
+        appendAttributeFilters(filter, sql, parameters);
+        if (cursorCreatedAt != null && cursorId != null) {
+            sql.append(" AND (created_at, id) < (:cursorCreatedAt, :cursorId)");
+            parameters.put("cursorCreatedAt", cursorCreatedAt);
+            parameters.put("cursorId", cursorId);
+        }
+        sql.append(" ORDER BY created_at DESC, id DESC LIMIT :limit");
+        parameters.put("limit", limit);
+
+        Query query = entityManager.createNativeQuery(sql.toString());
+        parameters.forEach(query::setParameter);
+
+        return ((List<Object[]>) query.getResultList()).stream()
+                .map(this::mapRow)
+                .toList();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long tableVersion() {
+        Long version = jdbcTemplate.queryForObject("SELECT sum(version) FROM stock_table_versions", Long.class);
+        return version == null ? 0 : version;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public Optional<Stock> findById(Long id) {
         try {
-            String sql = "SELECT id, nama_barang, jumlah_stok, nomor_seri_barang, " +
-                    "cast(additional_info as jsonb) as additional_info, gambar_barang, created_at, created_by, updated_at, updated_by " +
-                    "FROM stocks WHERE id = :id";
+            String sql = SELECT_COLUMNS + "FROM stocks WHERE id = :id";
 
             Object[] result = (Object[]) entityManager.createNativeQuery(sql)
                     .setParameter("id", id)
                     .getSingleResult();
 
-            Stock stock = Stock.builder()
-                    .id(((Number) result[0]).longValue())
-                    .namaBarang((String) result[1])
-                    .jumlahStok(((Number) result[2]).intValue())
-                    .nomorSeriBarang((String) result[3])
-                    .additionalInfo((String) result[4])
-                    .gambarBarang((String) result[5])
-                    .createdAt(((Timestamp) result[6]).toLocalDateTime())
-                    .createdBy((Long) result[7])
-                    .updatedAt(result[8] != null ? ((Timestamp) result[8]).toLocalDateTime() : null)
-                    .updatedBy((Long) result[9])
-                    .build();
-
-            return Optional.of(stock);
+            return Optional.of(mapRow(result));
         } catch (NoResultException e) {
             return Optional.empty();
         }
     }
 
     @Override
-    public void delete(Stock stock) {
-        entityManager.remove(entityManager.contains(stock) ? stock : entityManager.merge(stock));
+    public Optional<Stock> adjustQuantity(Long id, int delta, Long updatedBy, LocalDateTime updatedAt) {
+        // Recorded in stock_movements as 'adjusted' instead of 'updated', see V12__create_stock_ledger.sql
+        entityManager.createNativeQuery("SELECT set_config('app.movement_type', 'adjusted', true)").getSingleResult();
+
+        // The arithmetic and the non-negative guard run in the UPDATE itself, so concurrent adjustments
+        // never read-modify-write and only hold the row lock for the statement
+        String sql = "UPDATE stocks SET jumlah_stok = jumlah_stok + :delta, updated_at = :updatedAt, updated_by = :updatedBy " +
+                "WHERE id = :id AND jumlah_stok + :delta >= 0 RETURNING " + COLUMNS;
+
+        Optional<Stock> adjusted;
+        try {
+            Object[] result = (Object[]) entityManager.createNativeQuery(sql)
+                    .setParameter("delta", delta)
+                    .setParameter("updatedAt", updatedAt)
+                    .setParameter("updatedBy", updatedBy)
+                    .setParameter("id", id)
+                    .getSingleResult();
+            adjusted = Optional.of(mapRow(result));
+        } catch (NoResultException e) {
+            adjusted = Optional.empty();
+        }
+
+        // The setting lasts until commit, later updates in the same transaction are plain updates again. Not reset
+        // when the UPDATE threw: the aborted transaction rolls it back anyway, and a second statement would fail
+        // too and hide the real error
+        entityManager.createNativeQuery("SELECT set_config('app.movement_type', '', true)").getSingleResult();
+        return adjusted;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamAll(int fetchSize, Consumer<Stock> consumer) {
+        stream(STREAM_COLUMNS + "FROM stocks ORDER BY id", fetchSize, consumer);
+    }
+
+    @Override
+    public void streamCreated(LocalDateTime createdAt, Long createdBy, int fetchSize, Consumer<Stock> consumer) {
+        // Rows written by one bulk import share created_at and created_by (idx_stocks_created_by_created_at_id).
+        // Stays on the primary, it reads rows the caller has just inserted
+        stream(STREAM_COLUMNS + "FROM stocks WHERE created_by = ? AND created_at = ? ORDER BY id", fetchSize, consumer,
+                createdBy, Timestamp.valueOf(createdAt));
+    }
+
+    private void stream(String sql, int fetchSize, Consumer<Stock> consumer, Object... parameters) {
+        // Runs inside the class-level transaction so the PostgreSQL driver keeps autocommit off
+        // and honours the fetch size with a server-side cursor instead of buffering the whole result
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize);
+            for (int i = 0; i < parameters.length; i++) {
+                statement.setObject(i + 1, parameters[i]);
+            }
+            return statement;
+        }, (RowCallbackHandler) resultSet -> consumer.accept(mapResultSet(resultSet)));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Set<String> findReferencedImages(Collection<String> paths) {
+        if (paths.isEmpty()) return Set.of();
+
+        // Stays on the primary, a replica that has not seen a new stock yet would make its image look orphaned
+        List<String> referenced = entityManager.createNativeQuery(
+                        "SELECT DISTINCT gambar_barang FROM stocks WHERE gambar_barang IN (:paths)")
+                .setParameter("paths", paths)
+                .getResultList();
+        return new HashSet<>(referenced);
+    }
+
+    @Override
+    public List<Long> deleteAll(Collection<Long> ids) {
+        // One statement: delete the rows, release their image references and queue the files that lost their
+        // last reference (or never had a reference row) for ImageCleanupService
+        String sql = "WITH deleted AS (" +
+                "    DELETE FROM stocks WHERE id = ANY(?) RETURNING id, gambar_barang" +
+                "), released AS (" +
+                "    SELECT gambar_barang AS path, count(*) AS refs FROM deleted WHERE gambar_barang IS NOT NULL GROUP BY gambar_barang" +
+                "), decremented AS (" +
+                "    UPDATE image_refs SET ref_count = image_refs.ref_count - released.refs, updated_at = ? " +
+                "    FROM released WHERE image_refs.path = released.path RETURNING image_refs.path, image_refs.ref_count" +
+                "), queued AS (" +
+                "    INSERT INTO image_cleanup_queue (path, referenced, next_attempt_at, created_at) " +
+                "    SELECT path, TRUE, ?, ? FROM decremented WHERE ref_count <= 0 " +
+                "    UNION ALL " +
+                "    SELECT path, FALSE, ?, ? FROM released WHERE path NOT IN (SELECT path FROM decremented)" +
+                ") SELECT id FROM deleted";
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        return jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            statement.setArray(1, connection.createArrayOf("bigint", ids.toArray()));
+            for (int i = 2; i <= 6; i++) {
+                statement.setTimestamp(i, now);
+            }
+            return statement;
+        }, (resultSet, rowNum) -> resultSet.getLong("id"));
+    }
+
+    private Stock mapRow(Object[] result) {
+        return Stock.builder()
+                .id(((Number) result[0]).longValue())
+                .namaBarang((String) result[1])
+                .jumlahStok(((Number) result[2]).intValue())
+                .nomorSeriBarang((String) result[3])
+                .additionalInfo((String) result[4])
+                .gambarBarang((String) result[5])
+                .createdAt(((Timestamp) result[6]).toLocalDateTime())
+                .createdBy((Long) result[7])
+                .updatedAt(result[8] != null ? ((Timestamp) result[8]).toLocalDateTime() : null)
+                .updatedBy((Long) result[9])
+                .build();
+    }
+
+    private Stock mapResultSet(ResultSet resultSet) throws SQLException {
+        Timestamp updatedAt = resultSet.getTimestamp("updated_at");
+
+        return Stock.builder()
+                .id(resultSet.getLong("id"))
+                .namaBarang(resultSet.getString("nama_barang"))
+                .jumlahStok(resultSet.getInt("jumlah_stok"))
+                .nomorSeriBarang(resultSet.getString("nomor_seri_barang"))
+                .additionalInfo(resultSet.getString("additional_info"))
+                .gambarBarang(resultSet.getString("gambar_barang"))
+                .createdAt(resultSet.getTimestamp("created_at").toLocalDateTime())
+                .createdBy(resultSet.getLong("created_by"))
+                .updatedAt(updatedAt != null ? updatedAt.toLocalDateTime() : null)
+                .updatedBy(resultSet.getObject("updated_by", Long.class))
+                .build();
+    }
+
+    // Every value match is folded into one containment document and every bare key into an exists() jsonpath,
+    // both operators are served by the jsonb_path_ops GIN index on additional_info
+    private void appendAttributeFilters(StockFilterDTO filter, StringBuilder sql, Map<String, Object> parameters) {
+        ObjectNode containment = objectMapper.createObjectNode();
+        List<String> existsPaths = new ArrayList<>();
+
+        if (filter.getAttributes() != null && !filter.getAttributes().isBlank()) {
+            JsonNode attributes = readJson(filter.getAttributes());
+            if (!attributes.isObject()) {
+                throw new IllegalArgumentException("'attributes' must be a JSON object");
+            }
+            merge(containment, (ObjectNode) attributes);
+        }
+
+        List<String> paths = filter.getAttribute() == null ? List.of() : filter.getAttribute();
+        if (paths.size() > MAX_ATTRIBUTE_FILTERS) {
+            throw new IllegalArgumentException("At most " + MAX_ATTRIBUTE_FILTERS + " attribute filters are allowed");
+        }
+        for (String path : paths) {
+            if (path == null || path.isBlank()) continue;
+
+            int separator = path.indexOf(':');
+            String[] keys = (separator < 0 ? path : path.substring(0, separator)).split("\\.", -1);
+            for (String key : keys) {
+                if (key.isBlank()) throw new IllegalArgumentException("Invalid attribute path: " + path);
+            }
+
+            if (separator < 0) {
+                existsPaths.add(jsonPath(keys));
+                continue;
+            }
+
+            ObjectNode node = objectMapper.createObjectNode();
+            ObjectNode leaf = node;
+            for (int i = 0; i < keys.length - 1; i++) {
+                leaf = leaf.putObject(keys[i]);
+            }
+            leaf.set(keys[keys.length - 1], attributeValue(path.substring(separator + 1)));
+            merge(containment, node);
+        }
+
+        if (!containment.isEmpty()) {
+            sql.append(" AND additional_info @> cast(:attributes as jsonb)");
+            parameters.put("attributes", containment.toString());
+        }
+        if (!existsPaths.isEmpty()) {
+            // @@ rather than @? so the native query carries no bare '?' for the JDBC driver to mistake for a parameter
+            sql.append(" AND additional_info @@ cast(:attributePaths as jsonpath)");
+            parameters.put("attributePaths", existsPaths.stream()
+                    .map(jsonPath -> "exists(" + jsonPath + ")")
+                    .collect(Collectors.joining(" && ")));
+        }
+    }
+
+    // Values that parse as JSON keep their type (42, true, "42"), anything else is matched as a string
+    private JsonNode attributeValue(String value) {
+        try {
+            return objectMapper.readTree(value);
+        } catch (JsonProcessingException e) {
+            return objectMapper.getNodeFactory().textNode(value);
+        }
+    }
+
+    private JsonNode readJson(String json) {
+        try {
+            return objectMapper.readTree(json);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("'attributes' is not valid JSON");
+        }
+    }
+
+    private void merge(ObjectNode target, ObjectNode source) {
+        source.fields().forEachRemaining(field -> {
+            JsonNode existing = target.get(field.getKey());
+            if (existing instanceof ObjectNode existingObject && field.getValue() instanceof ObjectNode sourceObject) {
+                merge(existingObject, sourceObject);
+            } else if (existing != null && !existing.equals(field.getValue())) {
+                throw new IllegalArgumentException("Conflicting attribute filters for '" + field.getKey() + "'");
+            } else {
+                target.set(field.getKey(), field.getValue());
+            }
+        });
+    }
+
+    private String jsonPath(String[] keys) {
+        StringBuilder path = new StringBuilder("$");
+        for (String key : keys) {
+            path.append(".\"").append(key.replace("\\", "\\\\").replace("\"", "\\\"")).append('"');
+        }
+        return path.toString();
+    }
+
+    private String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
     }
 }
\ No newline at end of file
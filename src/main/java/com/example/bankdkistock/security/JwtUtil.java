@@ -1,9 +1,19 @@
 package com.example.bankdkistock.security;
 
+import com.example.bankdkistock.util.CacheStatsRegistry;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
@@ -11,16 +21,46 @@ import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
 @Component
 public class JwtUtil {
 
+    private static final String USER_ID_CLAIM = "uid";
+    private static final String ROLES_CLAIM = "roles";
+
     private final SecretKey secretKey;
+    private final JwtParser jwtParser;
+
+    // Verified token -> claims, each entry expires together with its token
+    private final Cache<String, Claims> verifiedTokens;
+
+    // Signature verification and parsing on a verified-token cache miss
+    private final Timer parseTimer;
 
-    public JwtUtil() {
+    public JwtUtil(
+            CacheStatsRegistry cacheStatsRegistry,
+            MeterRegistry meterRegistry,
+            @Value("${app.jwt.cache.max-size:10000}") long cacheMaxSize
+    ) {
         this.secretKey = Keys.hmacShaKeyFor("my_super_secret_key_for_jwt_signing_my_super_secret_key".getBytes(StandardCharsets.UTF_8));
+        this.jwtParser = Jwts.parserBuilder()
+                .setSigningKey(secretKey)
+                .build();
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfter(new TokenExpiry())
+                .recordStats()
+                .build();
+
+        cacheStatsRegistry.register("jwtVerifiedTokens", verifiedTokens);
+
+        this.parseTimer = Timer.builder("jwt.parse")
+                .description("JWT signature verification and claims parsing")
+                .register(meterRegistry);
     }
 
     public String extractUsername(String token) {
@@ -37,22 +77,54 @@ public class JwtUtil {
     }
 
     public Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(secretKey)
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        Claims claims = verifiedTokens.getIfPresent(token);
+        if (claims != null) {
+            return claims;
+        }
+
+        // Throws for a bad signature, malformed or expired token, so only verified tokens get cached
+        long start = System.nanoTime();
+        try {
+            claims = jwtParser.parseClaimsJws(token).getBody();
+        } finally {
+            parseTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        if (claims.getExpiration() != null) {
+            verifiedTokens.put(token, claims);
+        }
+
+        return claims;
     }
 
-    private Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    private Boolean isTokenExpired(Claims claims) {
+        return claims.getExpiration().before(new Date());
     }
 
     public String generateToken(UserDetails userDetails) {
         Map<String, Object> claims = new HashMap<>();
+        if (userDetails instanceof AuthenticatedUser authenticatedUser) {
+            claims.put(USER_ID_CLAIM, authenticatedUser.getId());
+        }
+        claims.put(ROLES_CLAIM, userDetails.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .toList());
+
         return createToken(claims, userDetails.getUsername());
     }
 
+    // Returns null for tokens issued before the user id was embedded, callers fall back to a user lookup
+    public AuthenticatedUser extractPrincipal(Claims claims) {
+        if (!(claims.get(USER_ID_CLAIM) instanceof Number userId)) {
+            return null;
+        }
+
+        List<GrantedAuthority> authorities = claims.get(ROLES_CLAIM) instanceof List<?> roles
+                ? roles.stream().<GrantedAuthority>map(role -> new SimpleGrantedAuthority(String.valueOf(role))).toList()
+                : List.of();
+
+        return new AuthenticatedUser(userId.longValue(), claims.getSubject(), null, authorities);
+    }
+
     private String createToken(Map<String, Object> claims, String subject) {
         return Jwts.builder()
                 .setClaims(claims)
@@ -64,7 +136,29 @@ public class JwtUtil {
     }
 
     public Boolean validateToken(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
+        return validateClaims(extractAllClaims(token), userDetails);
+    }
+
+    public Boolean validateClaims(Claims claims, UserDetails userDetails) {
+        return (claims.getSubject().equals(userDetails.getUsername()) && !isTokenExpired(claims));
+    }
+
+    private static class TokenExpiry implements Expiry<String, Claims> {
+
+        @Override
+        public long expireAfterCreate(String token, Claims claims, long currentTime) {
+            long remainingMillis = claims.getExpiration().getTime() - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(remainingMillis, 0));
+        }
+
+        @Override
+        public long expireAfterUpdate(String token, Claims claims, long currentTime, long currentDuration) {
+            return expireAfterCreate(token, claims, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String token, Claims claims, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
     }
 }
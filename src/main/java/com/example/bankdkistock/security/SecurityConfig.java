@@ -1,5 +1,6 @@
 package com.example.bankdkistock.security;
 
+import jakarta.servlet.DispatcherType;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -34,6 +35,11 @@ public class SecurityConfig {
                 .csrf(AbstractHttpConfigurer::disable)
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers("/auth/login").permitAll()
+                        // Async dispatches of an already authorized request (the /stocks/events stream) carry no token
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
+                        // Scraped by Prometheus without a token. Actuator is only served on management.server.port,
+                        // bound to a non-public address, the application port answers these paths with 404
+                        .requestMatchers("/actuator/health", "/actuator/prometheus").permitAll()
                         .anyRequest().authenticated()
                 )
                 .sessionManagement(session -> session
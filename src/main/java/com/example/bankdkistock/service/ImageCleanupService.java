@@ -0,0 +1,172 @@
+package com.example.bankdkistock.service;
+
+import com.example.bankdkistock.model.ImageCleanupTask;
+import com.example.bankdkistock.repository.ImageRefRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Deletes the files queued in {@code image_cleanup_queue} by stock deletes and image replacements, off the
+ * request path. Each batch is claimed with {@code FOR UPDATE SKIP LOCKED}, so several instances can work the
+ * queue together. A failed delete is retried with exponential backoff; after {@code max-attempts} the row stays
+ * in the queue (counted as failed) for someone to look at instead of silently leaving an orphaned file.
+ */
+@Service
+public class ImageCleanupService {
+
+    private static final Logger logger = LogManager.getLogger(ImageCleanupService.class);
+
+    private static final Duration MAX_RETRY_DELAY = Duration.ofHours(1);
+
+    private final ImageRefRepository imageRefRepository;
+    private final ImageStorageService imageStorageService;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration retryDelay;
+
+    private final Counter deleted;
+    private final Counter skipped;
+    private final Counter retried;
+    private final Counter abandoned;
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    public ImageCleanupService(
+            ImageRefRepository imageRefRepository,
+            ImageStorageService imageStorageService,
+            TransactionTemplate transactionTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${app.image.cleanup.batch-size:100}") int batchSize,
+            @Value("${app.image.cleanup.max-attempts:10}") int maxAttempts,
+            @Value("${app.image.cleanup.retry-delay:30s}") Duration retryDelay
+    ) {
+        this.imageRefRepository = imageRefRepository;
+        this.imageStorageService = imageStorageService;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.retryDelay = retryDelay;
+
+        this.deleted = outcome(meterRegistry, "deleted");
+        this.skipped = outcome(meterRegistry, "skipped");
+        this.retried = outcome(meterRegistry, "retried");
+        this.abandoned = outcome(meterRegistry, "abandoned");
+        Gauge.builder("image.cleanup.pending", pending, AtomicLong::get)
+                .description("Queued image files still to be deleted")
+                .register(meterRegistry);
+        Gauge.builder("image.cleanup.failed", failed, AtomicLong::get)
+                .description("Queued image files that ran out of delete attempts")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.image.cleanup.interval-ms:5000}")
+    public void process() {
+        try {
+            Integer processed;
+            do {
+                processed = transactionTemplate.execute(status -> processBatch());
+            } while (processed != null && processed == batchSize);
+
+            pending.set(imageRefRepository.countPendingCleanup(maxAttempts));
+            failed.set(imageRefRepository.countFailedCleanup(maxAttempts));
+        } catch (RuntimeException e) {
+            logger.error("Image cleanup run failed: {}", e.getMessage());
+        }
+    }
+
+    public Map<String, Long> stats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("pending", pending.get());
+        stats.put("failed", failed.get());
+        stats.put("deleted", (long) deleted.count());
+        stats.put("skipped", (long) skipped.count());
+        stats.put("retried", (long) retried.count());
+        stats.put("abandoned", (long) abandoned.count());
+        return stats;
+    }
+
+    private int processBatch() {
+        List<ImageCleanupTask> tasks = imageRefRepository.claimCleanup(maxAttempts, batchSize);
+        for (ImageCleanupTask task : tasks) {
+            if (task.isReferenced()) {
+                // The row lock is held until commit, an upload of the same content waits and then re-creates the file
+                Optional<Integer> refCount = imageRefRepository.lockRefCount(task.getPath());
+                if (refCount.isEmpty() || refCount.get() > 0) {
+                    // Uploaded again since it was queued, or already cleaned up by an earlier task
+                    imageRefRepository.completeCleanup(task.getId());
+                    skipped.increment();
+                    continue;
+                }
+            }
+
+            try {
+                deleteFiles(task.getPath());
+            } catch (IOException e) {
+                retry(task, e);
+                continue;
+            }
+
+            // Dropped only after the files are gone, so a retry still finds the zero count
+            if (task.isReferenced()) imageRefRepository.delete(task.getPath());
+            imageRefRepository.completeCleanup(task.getId());
+            deleted.increment();
+        }
+        return tasks.size();
+    }
+
+    private void deleteFiles(String publicPath) throws IOException {
+        List<String> paths = new ArrayList<>();
+        paths.add(publicPath);
+        // A legacy <uuid>_photo.jpg has no variants, <uuid>_photo_thumb.jpg would be another stock's upload
+        if (ImageStorageService.isContentAddressed(publicPath)) {
+            ImageStorageService.VARIANTS.forEach(variant -> paths.add(ImageStorageService.variantPublicPath(publicPath, variant)));
+        }
+
+        for (String path : paths) {
+            Optional<Path> file = imageStorageService.publicTargetPath(path);
+            if (file.isPresent()) Files.deleteIfExists(file.get());
+        }
+    }
+
+    private void retry(ImageCleanupTask task, IOException e) {
+        int attempts = task.getAttempts() + 1;
+        Duration delay = retryDelay.multipliedBy(1L << Math.min(attempts - 1, 20));
+        if (delay.compareTo(MAX_RETRY_DELAY) > 0) delay = MAX_RETRY_DELAY;
+
+        imageRefRepository.retryCleanup(task.getId(), LocalDateTime.now().plus(delay), e.toString());
+        if (attempts >= maxAttempts) {
+            abandoned.increment();
+            logger.error("Giving up deleting image {} after {} attempts: {}", task.getPath(), attempts, e.getMessage());
+        } else {
+            retried.increment();
+            logger.warn("Failed to delete image {} (attempt {}), retrying in {}: {}", task.getPath(), attempts, delay, e.getMessage());
+        }
+    }
+
+    private static Counter outcome(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("image.cleanup")
+                .description("Queued image files processed, by outcome")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
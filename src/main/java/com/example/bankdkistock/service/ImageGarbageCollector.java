@@ -0,0 +1,264 @@
+package com.example.bankdkistock.service;
+
+import com.example.bankdkistock.model.ImageGcCursor;
+import com.example.bankdkistock.repository.ImageRefRepository;
+import com.example.bankdkistock.repository.StockRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Finds image files that no stock points at any more (a failed insert after the upload, a lost release) and
+ * hands them to the cleanup queue. The upload directory is walked one shard ({@code ab/cd}) at a time, at most
+ * {@code files-per-run} files every {@code interval-ms}, with the position saved in {@code image_gc_state}, so a
+ * run never lists the whole tree or scans the whole table, and a restart picks up where the last run stopped.
+ * Each batch of names is checked against {@code stocks.gambar_barang} through its index. Files younger than the
+ * grace period are left alone, an upload is written before the row that references it.
+ */
+@Service
+public class ImageGarbageCollector {
+
+    private static final Logger logger = LogManager.getLogger(ImageGarbageCollector.class);
+
+    private static final String LEGACY_SHARD = "";
+    private static final Pattern CONTENT_HASH = Pattern.compile("[0-9a-f]{64}");
+
+    private final ImageRefRepository imageRefRepository;
+    private final StockRepository stockRepository;
+    private final ImageStorageService imageStorageService;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int filesPerRun;
+    private final int maxShardsPerRun;
+    private final Duration gracePeriod;
+
+    private final Counter scanned;
+    private final Counter orphans;
+    private final Counter leakedReferences;
+    private final Counter cycles;
+
+    public ImageGarbageCollector(
+            ImageRefRepository imageRefRepository,
+            StockRepository stockRepository,
+            ImageStorageService imageStorageService,
+            TransactionTemplate transactionTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${app.image.gc.enabled:true}") boolean enabled,
+            @Value("${app.image.gc.files-per-run:500}") int filesPerRun,
+            @Value("${app.image.gc.max-shards-per-run:256}") int maxShardsPerRun,
+            @Value("${app.image.gc.grace-period:24h}") Duration gracePeriod
+    ) {
+        this.imageRefRepository = imageRefRepository;
+        this.stockRepository = stockRepository;
+        this.imageStorageService = imageStorageService;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+        this.filesPerRun = filesPerRun;
+        this.maxShardsPerRun = maxShardsPerRun;
+        this.gracePeriod = gracePeriod;
+
+        this.scanned = Counter.builder("image.gc.scanned")
+                .description("Files in the upload directory checked for a referencing stock")
+                .register(meterRegistry);
+        this.orphans = Counter.builder("image.gc.orphans")
+                .description("Unreferenced images handed to the cleanup queue")
+                .register(meterRegistry);
+        this.leakedReferences = Counter.builder("image.gc.leaked.references")
+                .description("image_refs rows with a count but no stock using the image, reset to zero")
+                .register(meterRegistry);
+        this.cycles = Counter.builder("image.gc.cycles")
+                .description("Completed passes over the whole upload directory")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.image.gc.interval-ms:10000}", initialDelayString = "${app.image.gc.interval-ms:10000}")
+    public void collect() {
+        if (!enabled) return;
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> collectBatch());
+        } catch (RuntimeException e) {
+            logger.error("Orphan image scan failed: {}", e.getMessage());
+        }
+    }
+
+    public Map<String, Long> stats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("scanned", (long) scanned.count());
+        stats.put("orphans", (long) orphans.count());
+        stats.put("leakedReferences", (long) leakedReferences.count());
+        stats.put("cycles", (long) cycles.count());
+        return stats;
+    }
+
+    private void collectBatch() {
+        ImageGcCursor cursor = imageRefRepository.lockGcCursor().orElse(null);
+        // Another instance is scanning
+        if (cursor == null) return;
+
+        String shard = cursor.getShard();
+        String after = cursor.getLastName();
+        int budget = filesPerRun;
+        int shards = 0;
+
+        Instant fileCutoff = Instant.now().minus(gracePeriod);
+        LocalDateTime refCutoff = LocalDateTime.now().minus(gracePeriod);
+
+        while (budget > 0 && shards < maxShardsPerRun) {
+            List<Path> files = listShard(shard, after, budget);
+            reconcile(shard, files, fileCutoff, refCutoff);
+            scanned.increment(files.size());
+            budget -= files.size();
+
+            if (budget == 0 && !files.isEmpty()) {
+                // Shard may have more, continue after the last name next run
+                after = files.get(files.size() - 1).getFileName().toString();
+                break;
+            }
+
+            shard = nextShard(shard);
+            after = "";
+            shards++;
+            if (LEGACY_SHARD.equals(shard)) cycles.increment();
+        }
+
+        imageRefRepository.saveGcCursor(shard, after);
+    }
+
+    // Up to limit regular files of the shard with names after the given one, in name order
+    private List<Path> listShard(String shard, String after, int limit) {
+        Path dir = LEGACY_SHARD.equals(shard) ? imageStorageService.getUploadDir() : imageStorageService.getUploadDir().resolve(shard);
+        if (!Files.isDirectory(dir)) return List.of();
+
+        // Keeps only the smallest names, so memory stays bounded even for the (legacy) top-level directory
+        PriorityQueue<Path> smallest = new PriorityQueue<>(Comparator.comparing((Path path) -> path.getFileName().toString()).reversed());
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, path -> path.getFileName().toString().compareTo(after) > 0)) {
+            for (Path path : stream) {
+                if (!Files.isRegularFile(path)) continue;
+
+                smallest.add(path);
+                if (smallest.size() > limit) smallest.poll();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        List<Path> files = new ArrayList<>(smallest);
+        files.sort(Comparator.comparing(path -> path.getFileName().toString()));
+        return files;
+    }
+
+    private void reconcile(String shard, List<Path> files, Instant fileCutoff, LocalDateTime refCutoff) {
+        if (files.isEmpty()) return;
+
+        String prefix = ImageStorageService.PUBLIC_PREFIX + (LEGACY_SHARD.equals(shard) ? "" : shard + "/");
+
+        // Variants belong to their original, an image is only a candidate when all of its files are old enough
+        Map<String, Boolean> owners = new LinkedHashMap<>();
+        for (Path file : files) {
+            String owner = prefix + ownerName(shard, file);
+            boolean old = lastModified(file).toInstant().isBefore(fileCutoff);
+            owners.merge(owner, old, Boolean::logicalAnd);
+        }
+        owners.values().removeIf(old -> !old);
+        if (owners.isEmpty()) return;
+
+        Set<String> candidates = new HashSet<>(owners.keySet());
+        candidates.removeAll(stockRepository.findReferencedImages(candidates));
+        if (candidates.isEmpty()) return;
+
+        Map<String, LocalDateTime> refs = imageRefRepository.lockRefs(candidates);
+        for (String path : candidates) {
+            LocalDateTime refUpdatedAt = refs.get(path);
+            if (refUpdatedAt != null) {
+                // Touched recently, an upload may be about to insert the stock that uses it
+                if (!refUpdatedAt.isBefore(refCutoff)) continue;
+
+                imageRefRepository.resetRefCount(path);
+                leakedReferences.increment();
+                imageRefRepository.enqueueCleanup(path, true);
+            } else if (ImageStorageService.isContentAddressed(path) && originalExists(path)) {
+                // A zero-count row gives the cleanup a row to lock against a concurrent upload of the same content
+                if (!imageRefRepository.insertUnreferenced(contentHash(path), path)) continue;
+                imageRefRepository.enqueueCleanup(path, true);
+            } else {
+                // Legacy upload, or variants whose original is already gone
+                imageRefRepository.enqueueCleanup(path, false);
+            }
+
+            orphans.increment();
+            logger.info("Queued orphaned image {} for cleanup", path);
+        }
+    }
+
+    // <hash>_thumb.jpg -> <hash>.png when that original sits next to it, otherwise <hash>.jpg. Only content-addressed
+    // uploads have variants, a legacy <uuid>_photo_thumb.jpg is an upload of its own and owns itself
+    private String ownerName(String shard, Path file) {
+        String name = file.getFileName().toString();
+        if (LEGACY_SHARD.equals(shard)) return name;
+
+        for (String variant : ImageStorageService.VARIANTS) {
+            String suffix = "_" + variant + ".jpg";
+            if (name.endsWith(suffix)) {
+                String stem = name.substring(0, name.length() - suffix.length());
+                if (!CONTENT_HASH.matcher(stem).matches()) return name;
+                return Files.exists(file.resolveSibling(stem + ".png")) ? stem + ".png" : stem + ".jpg";
+            }
+        }
+        return name;
+    }
+
+    private boolean originalExists(String publicPath) {
+        return imageStorageService.resolvePublicPath(publicPath).isPresent();
+    }
+
+    private static String contentHash(String publicPath) {
+        String name = publicPath.substring(publicPath.lastIndexOf('/') + 1);
+        int extension = name.lastIndexOf('.');
+        return extension < 0 ? name : name.substring(0, extension);
+    }
+
+    private static FileTime lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            // Gone since it was listed, treat it as new so it is not queued
+            return FileTime.from(Instant.now());
+        }
+    }
+
+    // '' (legacy top level) -> 00/00 -> 00/01 -> ... -> ff/ff -> ''
+    static String nextShard(String shard) {
+        if (LEGACY_SHARD.equals(shard)) return "00/00";
+
+        int next = Integer.parseInt(shard.replace("/", ""), 16) + 1;
+        if (next > 0xFFFF) return LEGACY_SHARD;
+
+        String hex = String.format("%04x", next);
+        return hex.substring(0, 2) + "/" + hex.substring(2);
+    }
+}
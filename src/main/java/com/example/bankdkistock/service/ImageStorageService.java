@@ -0,0 +1,241 @@
+package com.example.bankdkistock.service;
+
+import com.example.bankdkistock.repository.ImageRefRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Stores uploads content-addressed as {@code <upload-dir>/ab/cd/<sha-256>.<ext>}. Identical images share
+ * one file, tracked by a reference count in {@code image_refs}.
+ */
+@Service
+public class ImageStorageService {
+
+    public static final String PUBLIC_PREFIX = "/uploads/";
+
+    public static final List<String> VARIANTS = List.of("thumb", "medium");
+
+    private static final String TEMP_DIR = ".tmp";
+
+    // /uploads/ab/cd/<sha-256>.<ext>, the only layout that has variants; older uploads are <uuid>_<original name>
+    private static final Pattern CONTENT_ADDRESSED = Pattern.compile(
+            Pattern.quote(PUBLIC_PREFIX) + "([0-9a-f]{2})/([0-9a-f]{2})/\\1\\2[0-9a-f]{60}\\.(jpg|png)");
+
+    // JPEG files start with FF D8 FF
+    private static final byte[] JPEG_SIGNATURE = new byte[]{(byte) 0xFF, (byte) 0xD8, (byte) 0xFF};
+
+    // PNG files start with 89 50 4E 47 0D 0A 1A 0A
+    private static final byte[] PNG_SIGNATURE = new byte[]{(byte) 0x89, 0x50, 0x4E, 0x47, 0x0D, 0x0A, 0x1A, 0x0A};
+
+    private final ImageRefRepository imageRefRepository;
+
+    @Getter
+    private final Path uploadDir;
+    private final Path tempDir;
+
+    private final Timer storeTimer;
+    private final DistributionSummary storeBytes;
+    private final Timer releaseTimer;
+
+    public ImageStorageService(
+            ImageRefRepository imageRefRepository,
+            MeterRegistry meterRegistry,
+            @Value("${app.storage.upload-dir:src/main/resources/static/uploads}") String uploadDir
+    ) {
+        this.imageRefRepository = imageRefRepository;
+        this.uploadDir = Paths.get(uploadDir).toAbsolutePath().normalize();
+        this.tempDir = this.uploadDir.resolve(TEMP_DIR);
+
+        this.storeTimer = Timer.builder("image.store")
+                .description("Time to validate, hash and place an uploaded image")
+                .register(meterRegistry);
+        this.storeBytes = DistributionSummary.builder("image.store.bytes")
+                .description("Size of stored uploads")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.releaseTimer = Timer.builder("image.release")
+                .description("Time to release an image reference and queue unreferenced files for cleanup")
+                .register(meterRegistry);
+    }
+
+    public String store(MultipartFile imageFile) throws Exception {
+        long start = System.nanoTime();
+        try {
+            return storeFile(imageFile);
+        } finally {
+            storeTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private String storeFile(MultipartFile imageFile) throws Exception {
+        Path tempFile = createTempFile();
+        long size = 0;
+
+        // Validate the signature from the first bytes and hash while copying, the upload is read exactly once
+        String extension;
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        try (InputStream inputStream = imageFile.getInputStream();
+             OutputStream outputStream = Files.newOutputStream(tempFile)) {
+            byte[] buffer = new byte[8192];
+            int headerLength = inputStream.readNBytes(buffer, 0, PNG_SIGNATURE.length);
+
+            extension = detectImageExtension(buffer, headerLength);
+            if (extension == null) {
+                throw new Exception("Invalid image file: file content does not match extension");
+            }
+
+            digest.update(buffer, 0, headerLength);
+            outputStream.write(buffer, 0, headerLength);
+            size += headerLength;
+
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+                outputStream.write(buffer, 0, read);
+                size += read;
+            }
+        } catch (Exception e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+
+        storeBytes.record(size);
+
+        String hash = HexFormat.of().formatHex(digest.digest());
+        String relativePath = hash.substring(0, 2) + "/" + hash.substring(2, 4) + "/" + hash + "." + extension;
+
+        // Take the reference before placing the file, a concurrent release of the same hash either
+        // finishes first (and we re-create the file below) or sees our reference and keeps it
+        imageRefRepository.acquire(hash, PUBLIC_PREFIX + relativePath);
+
+        Path target = uploadDir.resolve(relativePath);
+        if (Files.exists(target)) {
+            Files.delete(tempFile);
+        } else {
+            Files.createDirectories(target.getParent());
+            Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        return PUBLIC_PREFIX + relativePath;
+    }
+
+    @Transactional
+    public void release(String publicPath) {
+        long start = System.nanoTime();
+        try {
+            releaseReference(publicPath);
+        } finally {
+            releaseTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void releaseReference(String publicPath) {
+        Optional<Integer> remaining = imageRefRepository.decrement(publicPath);
+        if (remaining.isPresent() && remaining.get() > 0) return;
+
+        // Uploads from before content addressing have no reference row and belong to a single stock.
+        // The files go once this transaction commits, through the retried cleanup queue
+        imageRefRepository.enqueueCleanup(publicPath, remaining.isPresent());
+    }
+
+    public static boolean isContentAddressed(String publicPath) {
+        return publicPath != null && CONTENT_ADDRESSED.matcher(publicPath).matches();
+    }
+
+    // /uploads/ab/cd/<hash>.png -> /uploads/ab/cd/<hash>_thumb.jpg, variants are always JPEG
+    public static String variantPublicPath(String publicPath, String variant) {
+        if (publicPath == null) return null;
+
+        int extension = publicPath.lastIndexOf('.');
+        String stem = extension > publicPath.lastIndexOf('/') ? publicPath.substring(0, extension) : publicPath;
+        return stem + "_" + variant + ".jpg";
+    }
+
+    // Original of a content-addressed variant, used to serve the original until the variant exists
+    public Optional<Path> resolveVariantOriginal(String publicPath) {
+        for (String variant : VARIANTS) {
+            String suffix = "_" + variant + ".jpg";
+            if (publicPath != null && publicPath.endsWith(suffix)) {
+                String stem = publicPath.substring(0, publicPath.length() - suffix.length());
+                // Older uploads have no variants, so a name like theirs is not a variant URL
+                if (!isContentAddressed(stem + ".jpg")) return Optional.empty();
+                return resolvePublicPath(stem + ".jpg").or(() -> resolvePublicPath(stem + ".png"));
+            }
+        }
+        return Optional.empty();
+    }
+
+    public Optional<Path> resolvePublicPath(String publicPath) {
+        if (publicPath == null || !publicPath.startsWith(PUBLIC_PREFIX)) return Optional.empty();
+        return resolve(publicPath.substring(PUBLIC_PREFIX.length()));
+    }
+
+    public Optional<Path> resolve(String relativePath) {
+        return targetPath(relativePath).filter(Files::isRegularFile);
+    }
+
+    // Location for a file under the upload directory, whether or not it exists yet
+    public Optional<Path> targetPath(String relativePath) {
+        if (relativePath == null || relativePath.isBlank()) return Optional.empty();
+
+        // Reject anything that would escape the upload directory (../, absolute paths) or reach partial uploads
+        Path file = uploadDir.resolve(relativePath).normalize();
+        if (!file.startsWith(uploadDir) || file.startsWith(tempDir)) {
+            return Optional.empty();
+        }
+        return Optional.of(file);
+    }
+
+    public Optional<Path> publicTargetPath(String publicPath) {
+        if (publicPath == null || !publicPath.startsWith(PUBLIC_PREFIX)) return Optional.empty();
+        return targetPath(publicPath.substring(PUBLIC_PREFIX.length()));
+    }
+
+    public Path createTempFile() throws IOException {
+        Files.createDirectories(tempDir);
+        return Files.createTempFile(tempDir, "upload-", ".tmp");
+    }
+
+    public static boolean isValidImageSignature(byte[] header, int length) {
+        return detectImageExtension(header, length) != null;
+    }
+
+    static String detectImageExtension(byte[] header, int length) {
+        if (length >= JPEG_SIGNATURE.length && startsWith(header, JPEG_SIGNATURE)) {
+            return "jpg";
+        }
+        if (length >= PNG_SIGNATURE.length && startsWith(header, PNG_SIGNATURE)) {
+            return "png";
+        }
+        return null;
+    }
+
+    private static boolean startsWith(byte[] fileBytes, byte[] signature) {
+        for (int i = 0; i < signature.length; i++) {
+            if (fileBytes[i] != signature[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,207 @@
+package com.example.bankdkistock.service;
+
+import com.example.bankdkistock.repository.ImageRefRepository;
+import jakarta.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates thumbnail and medium JPEG variants of stored images on a small, bounded worker pool.
+ * When the queue is full the job is dropped and picked up later by the backfill sweep over
+ * {@code image_refs.variants_ready}, so upload spikes never block request threads or grow memory.
+ */
+@Service
+public class ImageVariantService {
+
+    private static final Logger logger = LogManager.getLogger(ImageVariantService.class);
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final ImageStorageService imageStorageService;
+    private final ImageRefRepository imageRefRepository;
+    private final Map<String, Integer> variantSizes;
+    private final int backfillBatchSize;
+
+    private final ThreadPoolExecutor executor;
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    public ImageVariantService(
+            ImageStorageService imageStorageService,
+            ImageRefRepository imageRefRepository,
+            @Value("${app.image.variants.workers:2}") int workers,
+            @Value("${app.image.variants.queue-capacity:100}") int queueCapacity,
+            @Value("${app.image.variants.thumbnail-size:200}") int thumbnailSize,
+            @Value("${app.image.variants.medium-size:800}") int mediumSize,
+            @Value("${app.image.variants.backfill-batch-size:50}") int backfillBatchSize
+    ) {
+        this.imageStorageService = imageStorageService;
+        this.imageRefRepository = imageRefRepository;
+        this.backfillBatchSize = backfillBatchSize;
+
+        this.variantSizes = new LinkedHashMap<>();
+        this.variantSizes.put("thumb", thumbnailSize);
+        this.variantSizes.put("medium", mediumSize);
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "image-variant-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    public void submit(String publicPath) {
+        // Uploads from before content addressing get no variants, the collector would take them for images of their own
+        if (!ImageStorageService.isContentAddressed(publicPath) || !inFlight.add(publicPath)) return;
+
+        try {
+            executor.execute(() -> {
+                try {
+                    generate(publicPath);
+                } finally {
+                    inFlight.remove(publicPath);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Queue is full, the backfill sweep will pick this image up once there is capacity
+            inFlight.remove(publicPath);
+            rejected.incrementAndGet();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.image.variants.backfill-interval-ms:30000}")
+    public void backfill() {
+        int capacity = Math.min(executor.getQueue().remainingCapacity(), backfillBatchSize);
+        if (capacity <= 0) return;
+
+        imageRefRepository.findPendingVariants(MAX_ATTEMPTS, capacity).forEach(this::submit);
+    }
+
+    public Map<String, Long> stats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("queued", (long) executor.getQueue().size());
+        stats.put("active", (long) executor.getActiveCount());
+        stats.put("completed", completed.get());
+        stats.put("failed", failed.get());
+        stats.put("rejected", rejected.get());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void generate(String publicPath) {
+        try {
+            Optional<Path> original = imageStorageService.resolvePublicPath(publicPath);
+            if (original.isEmpty()) return;
+
+            if (!variantsExist(publicPath)) {
+                BufferedImage image = readDownsampled(original.get(), variantSizes.values().stream().max(Integer::compare).orElse(0));
+                for (Map.Entry<String, Integer> variant : variantSizes.entrySet()) {
+                    writeVariant(image, variant.getValue(), ImageStorageService.variantPublicPath(publicPath, variant.getKey()));
+                }
+            }
+
+            imageRefRepository.markVariantsReady(publicPath);
+            completed.incrementAndGet();
+        } catch (Exception e) {
+            failed.incrementAndGet();
+            logger.error("Failed to generate variants for {}: {}", publicPath, e.getMessage());
+            imageRefRepository.recordVariantFailure(publicPath);
+        }
+    }
+
+    private boolean variantsExist(String publicPath) {
+        return variantSizes.keySet().stream()
+                .allMatch(variant -> imageStorageService.resolvePublicPath(ImageStorageService.variantPublicPath(publicPath, variant)).isPresent());
+    }
+
+    // Decodes with source subsampling so a 24 megapixel photo never lands on the heap at full size
+    private BufferedImage readDownsampled(Path file, int largestVariant) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(file.toFile())) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) throw new IOException("Unsupported image format");
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int longestSide = Math.max(reader.getWidth(0), reader.getHeight(0));
+                int subsampling = Math.max(1, longestSide / (largestVariant * 2));
+
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private void writeVariant(BufferedImage image, int maxSize, String variantPublicPath) throws IOException {
+        Path target = imageStorageService.publicTargetPath(variantPublicPath)
+                .orElseThrow(() -> new IOException("Invalid variant path " + variantPublicPath));
+
+        double scale = Math.min(1.0, (double) maxSize / Math.max(image.getWidth(), image.getHeight()));
+        int width = Math.max(1, (int) Math.round(image.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(image.getHeight() * scale));
+
+        // Draw onto an opaque canvas, JPEG has no alpha channel
+        BufferedImage resized = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = resized.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, width, height);
+            graphics.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+
+        Path tempFile = imageStorageService.createTempFile();
+        try {
+            if (!ImageIO.write(resized, "jpg", tempFile.toFile())) {
+                throw new IOException("No JPEG writer available");
+            }
+            Files.createDirectories(target.getParent());
+            Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.bankdkistock.service;
+
+import com.example.bankdkistock.dto.AutocompleteSuggestionDTO;
+import com.example.bankdkistock.model.Stock;
+import com.example.bankdkistock.repository.StockRepository;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Case-insensitive prefix index over nama_barang and nomor_seri_barang for /stocks/autocomplete.
+ * Each field is a skip list keyed by {@code lower(value) + '\0' + id}, so a prefix lookup is a
+ * {@code subMap} range scan of O(log n + limit) with no database round trip.
+ * <p>
+ * Memory per stock is roughly 300 bytes plus twice the length of nama_barang and nomor_seri_barang
+ * (two skip-list nodes with their lower-cased keys, the id map node and the entry holding the original
+ * values), about 380 bytes for a 20 character name and 12 character serial, or ~360 MB per million stocks.
+ */
+@Service
+public class StockAutocompleteIndex {
+
+    private static final Logger logger = LogManager.getLogger(StockAutocompleteIndex.class);
+
+    private static final char KEY_SEPARATOR = '\0';
+
+    private final StockRepository stockRepository;
+    private final boolean enabled;
+    private final int loadFetchSize;
+
+    private final ConcurrentSkipListMap<String, Entry> byName = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListMap<String, Entry> bySerial = new ConcurrentSkipListMap<>();
+    private final ConcurrentHashMap<Long, Entry> byId = new ConcurrentHashMap<>();
+
+    // Deletes that land while the startup load is streaming, so the load does not put them back
+    private final Set<Long> removedWhileLoading = ConcurrentHashMap.newKeySet();
+    private volatile boolean loading;
+
+    public StockAutocompleteIndex(
+            StockRepository stockRepository,
+            @Value("${app.stock.autocomplete.enabled:true}") boolean enabled,
+            @Value("${app.stock.export.fetch-size:1000}") int loadFetchSize
+    ) {
+        this.stockRepository = stockRepository;
+        this.enabled = enabled;
+        this.loadFetchSize = loadFetchSize;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (!enabled) return;
+
+        long start = System.nanoTime();
+        loading = true;
+        try {
+            stockRepository.streamAll(loadFetchSize, stock -> {
+                if (!removedWhileLoading.contains(stock.getId()) && !byId.containsKey(stock.getId())) {
+                    put(stock);
+                }
+            });
+        } finally {
+            loading = false;
+            removedWhileLoading.clear();
+        }
+
+        logger.info("Stock autocomplete index loaded: {} stocks in {} ms", byId.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    public void put(Stock stock) {
+        if (!enabled) return;
+
+        Entry entry = new Entry(stock.getId(), stock.getNamaBarang(), stock.getNomorSeriBarang());
+        byId.compute(stock.getId(), (id, previous) -> {
+            if (previous != null) unlink(previous);
+            byName.put(key(entry.namaBarang, id), entry);
+            bySerial.put(key(entry.nomorSeriBarang, id), entry);
+            return entry;
+        });
+    }
+
+    public void remove(Long id) {
+        if (!enabled) return;
+
+        if (loading) removedWhileLoading.add(id);
+        byId.computeIfPresent(id, (key, previous) -> {
+            unlink(previous);
+            return null;
+        });
+    }
+
+    // field is "name", "serial" or anything else for both, name matches first
+    public List<AutocompleteSuggestionDTO> suggest(String prefix, String field, int limit) {
+        if (prefix == null || prefix.isBlank() || limit <= 0) return List.of();
+
+        String normalized = normalize(prefix.strip());
+        Map<Long, AutocompleteSuggestionDTO> suggestions = new LinkedHashMap<>();
+        if (!"serial".equals(field)) collect(byName, normalized, limit, suggestions);
+        if (!"name".equals(field)) collect(bySerial, normalized, limit, suggestions);
+
+        return new ArrayList<>(suggestions.values());
+    }
+
+    public int size() {
+        return byId.size();
+    }
+
+    private void collect(ConcurrentSkipListMap<String, Entry> index, String prefix, int limit,
+                         Map<Long, AutocompleteSuggestionDTO> suggestions) {
+        // Every key starting with the prefix sorts before prefix + U+FFFF
+        ConcurrentNavigableMap<String, Entry> range = index.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+        for (Entry entry : range.values()) {
+            if (suggestions.size() >= limit) return;
+            suggestions.putIfAbsent(entry.id, new AutocompleteSuggestionDTO(entry.id, entry.namaBarang, entry.nomorSeriBarang));
+        }
+    }
+
+    private void unlink(Entry entry) {
+        byName.remove(key(entry.namaBarang, entry.id), entry);
+        bySerial.remove(key(entry.nomorSeriBarang, entry.id), entry);
+    }
+
+    private String key(String value, Long id) {
+        return normalize(value == null ? "" : value) + KEY_SEPARATOR + id;
+    }
+
+    private String normalize(String value) {
+        return value.toLowerCase(Locale.ROOT);
+    }
+
+    private record Entry(Long id, String namaBarang, String nomorSeriBarang) {
+    }
+}
@@ -0,0 +1,340 @@
+package com.example.bankdkistock.service;
+
+import com.example.bankdkistock.dto.StockEventDTO;
+import com.example.bankdkistock.model.StockEventPosition;
+import com.example.bankdkistock.repository.StockEventRepository;
+import jakarta.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.postgresql.PGConnection;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Push feed of stock changes for {@code GET /stocks/events}. Events come from the {@code stock_events} outbox
+ * that a trigger on {@code stocks} fills, so writes made by any instance, by imports and by quantity flushes
+ * all show up, with the same ids on every instance.
+ * <p>
+ * One listener thread per instance waits on {@code LISTEN stock_events}, reads new rows once and fans them out.
+ * Every client has its own bounded queue drained by its own virtual thread, so a slow client can only fill its
+ * own queue; it is then sent an {@code overflow} event and disconnected, and resumes from its Last-Event-ID
+ * (from the in-memory buffer of recent events, or from the table when it is further behind).
+ * <p>
+ * Events are delivered in commit order rather than id order: ids are taken at insert time, so a transaction
+ * can commit after higher ids are already out. The feed only reads events of transactions older than the
+ * oldest one still running, which means a long transaction holds the feed back until it ends but never makes
+ * it lose an event.
+ */
+@Service
+public class StockEventService {
+
+    private static final Logger logger = LogManager.getLogger(StockEventService.class);
+
+    private static final String CHANNEL = "stock_events";
+
+    private final StockEventRepository stockEventRepository;
+    private final DataSource dataSource;
+    private final boolean enabled;
+    private final int bufferSize;
+    private final int clientQueueSize;
+    private final int maxClients;
+    private final int batchSize;
+    private final int pollIntervalMs;
+    private final long heartbeatMs;
+    private final long emitterTimeoutMs;
+    private final Duration retention;
+
+    // Recent events for resuming clients, only the listener thread writes
+    private final ReentrantReadWriteLock bufferLock = new ReentrantReadWriteLock();
+    private final ArrayDeque<StockEventDTO> buffer = new ArrayDeque<>();
+    // Last position that is not (or no longer) in the buffer, clients further behind replay from the table
+    private StockEventPosition bufferFloor;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean running;
+    private Thread listener;
+    private volatile StockEventPosition lastSeen;
+
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong replayed = new AtomicLong();
+    private final AtomicLong overflowed = new AtomicLong();
+
+    public StockEventService(
+            StockEventRepository stockEventRepository,
+            DataSource dataSource,
+            @Value("${app.stock.events.enabled:true}") boolean enabled,
+            @Value("${app.stock.events.buffer-size:10000}") int bufferSize,
+            @Value("${app.stock.events.client-queue-size:1000}") int clientQueueSize,
+            @Value("${app.stock.events.max-clients:1000}") int maxClients,
+            @Value("${app.stock.events.batch-size:500}") int batchSize,
+            @Value("${app.stock.events.poll-interval-ms:1000}") int pollIntervalMs,
+            @Value("${app.stock.events.heartbeat-ms:15000}") long heartbeatMs,
+            @Value("${app.stock.events.emitter-timeout-ms:1800000}") long emitterTimeoutMs,
+            @Value("${app.stock.events.retention:24h}") Duration retention
+    ) {
+        this.stockEventRepository = stockEventRepository;
+        this.dataSource = dataSource;
+        this.enabled = enabled;
+        this.bufferSize = bufferSize;
+        this.clientQueueSize = clientQueueSize;
+        this.maxClients = maxClients;
+        this.batchSize = batchSize;
+        this.pollIntervalMs = pollIntervalMs;
+        this.heartbeatMs = heartbeatMs;
+        this.emitterTimeoutMs = emitterTimeoutMs;
+        this.retention = retention;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) return;
+
+        lastSeen = stockEventRepository.latestPosition();
+        bufferFloor = lastSeen;
+        running = true;
+        listener = Thread.ofPlatform().daemon().name("stock-events-listener").start(this::listen);
+        logger.info("Stock event feed started at event {}", lastSeen.getId());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        if (listener != null) listener.interrupt();
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+    }
+
+    // Starts a stream that first replays everything after lastEventId (when given) and then follows live events
+    public SseEmitter subscribe(Long lastEventId) {
+        if (!running) {
+            throw new IllegalStateException("Stock event feed is not available");
+        }
+        if (subscribers.size() >= maxClients) {
+            throw new IllegalStateException("Too many stock event clients, try again later");
+        }
+
+        Subscriber subscriber = new Subscriber(new SseEmitter(emitterTimeoutMs), lastEventId);
+        subscriber.emitter.onCompletion(subscriber::close);
+        subscriber.emitter.onTimeout(subscriber::close);
+        subscriber.emitter.onError(error -> subscriber.close());
+
+        // Registered before the replay reads the buffer, so nothing published in between is missed
+        subscribers.add(subscriber);
+        Thread.ofVirtual().name("stock-events-client").start(subscriber::run);
+        return subscriber.emitter;
+    }
+
+    @Scheduled(fixedDelayString = "${app.stock.events.prune-interval-ms:3600000}")
+    public void prune() {
+        if (!enabled) return;
+
+        int deleted = stockEventRepository.deleteOlderThan(LocalDateTime.now().minus(retention));
+        if (deleted > 0) {
+            logger.info("Pruned {} stock events older than {}", deleted, retention);
+        }
+    }
+
+    public Map<String, Long> stats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("clients", (long) subscribers.size());
+        stats.put("lastEventId", lastSeen == null ? 0 : lastSeen.getId());
+        stats.put("published", published.get());
+        stats.put("delivered", delivered.get());
+        stats.put("replayed", replayed.get());
+        stats.put("overflowed", overflowed.get());
+        return stats;
+    }
+
+    private void listen() {
+        while (running) {
+            try (Connection connection = dataSource.getConnection()) {
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+
+                // Commits made while (re)connecting were not notified to this connection
+                catchUp();
+                while (running) {
+                    // The timeout doubles as a safety poll and picks up events held back by a transaction
+                    // that has since ended
+                    pgConnection.getNotifications(pollIntervalMs);
+                    catchUp();
+                }
+            } catch (SQLException | DataAccessException e) {
+                if (!running) return;
+                logger.error("Stock event listener failed, reconnecting: {}", e.getMessage());
+                try {
+                    Thread.sleep(pollIntervalMs);
+                } catch (InterruptedException ex) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void catchUp() {
+        while (true) {
+            List<StockEventDTO> events = stockEventRepository.findAfter(lastSeen, StockEventPosition.END, batchSize);
+            for (StockEventDTO event : events) {
+                publish(event);
+                lastSeen = event.getPosition();
+            }
+            if (events.size() < batchSize) return;
+        }
+    }
+
+    private void publish(StockEventDTO event) {
+        bufferLock.writeLock().lock();
+        try {
+            buffer.addLast(event);
+            if (buffer.size() > bufferSize) {
+                bufferFloor = buffer.removeFirst().getPosition();
+            }
+        } finally {
+            bufferLock.writeLock().unlock();
+        }
+
+        published.incrementAndGet();
+        subscribers.forEach(subscriber -> subscriber.offer(event));
+    }
+
+    private class Subscriber {
+        private final SseEmitter emitter;
+        private final Long resumeFrom;
+        private final BlockingQueue<StockEventDTO> queue = new ArrayBlockingQueue<>(clientQueueSize);
+        private volatile boolean closed;
+        private volatile boolean overflow;
+        private StockEventPosition lastSent;
+
+        private Subscriber(SseEmitter emitter, Long resumeFrom) {
+            this.emitter = emitter;
+            this.resumeFrom = resumeFrom;
+        }
+
+        // Called by the listener thread, never blocks on the client
+        private void offer(StockEventDTO event) {
+            if (!closed && !overflow && !queue.offer(event)) {
+                overflow = true;
+                overflowed.incrementAndGet();
+            }
+        }
+
+        private void close() {
+            closed = true;
+            subscribers.remove(this);
+        }
+
+        private void run() {
+            try {
+                if (resumeFrom != null) {
+                    replay(resumeFrom);
+                } else {
+                    lastSent = StockEventPosition.START;
+                }
+
+                while (!closed && running) {
+                    if (overflow) {
+                        // Falling this far behind means live delivery cannot keep up, let the client reconnect
+                        // and catch up through the replay path instead
+                        emitter.send(SseEmitter.event().name("overflow").data(lastSent.getId()));
+                        emitter.complete();
+                        return;
+                    }
+
+                    StockEventDTO event = queue.poll(heartbeatMs, TimeUnit.MILLISECONDS);
+                    if (event == null) {
+                        emitter.send(SseEmitter.event().comment("keep-alive"));
+                    } else {
+                        send(event);
+                    }
+                }
+            } catch (IOException | IllegalStateException e) {
+                // Client went away, the emitter callbacks take care of the rest
+                emitter.completeWithError(e);
+            } catch (InterruptedException e) {
+                emitter.complete();
+            } finally {
+                close();
+            }
+        }
+
+        private void replay(long afterId) throws IOException {
+            // A pruned id resumes from the oldest event still kept, repeating beats skipping a late commit
+            lastSent = stockEventRepository.findPosition(afterId).orElse(StockEventPosition.START);
+
+            while (true) {
+                StockEventPosition floor = floor();
+                if (!floor.isAfter(lastSent)) break;
+
+                List<StockEventDTO> events = stockEventRepository.findAfter(lastSent, floor, batchSize);
+                if (events.isEmpty()) break;
+                for (StockEventDTO event : events) {
+                    send(event);
+                }
+                replayed.addAndGet(events.size());
+            }
+
+            List<StockEventDTO> recent = new ArrayList<>();
+            bufferLock.readLock().lock();
+            try {
+                for (StockEventDTO event : buffer) {
+                    if (event.getPosition().isAfter(lastSent)) recent.add(event);
+                }
+            } finally {
+                bufferLock.readLock().unlock();
+            }
+            for (StockEventDTO event : recent) {
+                send(event);
+            }
+        }
+
+        private void send(StockEventDTO event) throws IOException {
+            // Replay and the live queue overlap, and a client may resume with an id from another instance
+            if (!event.getPosition().isAfter(lastSent)) return;
+
+            emitter.send(SseEmitter.event()
+                    .id(String.valueOf(event.getId()))
+                    .name(event.getType())
+                    .data(event, MediaType.APPLICATION_JSON));
+            lastSent = event.getPosition();
+            delivered.incrementAndGet();
+        }
+
+        private StockEventPosition floor() {
+            bufferLock.readLock().lock();
+            try {
+                return bufferFloor;
+            } finally {
+                bufferLock.readLock().unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,312 @@
+package com.example.bankdkistock.service;
+
+import com.example.bankdkistock.dto.ImportResultDTO;
+import com.example.bankdkistock.dto.ImportRowErrorDTO;
+import com.example.bankdkistock.model.Stock;
+import com.example.bankdkistock.repository.StockRepository;
+import com.example.bankdkistock.util.AuthenticatedUserUtil;
+import com.example.bankdkistock.util.JsonUtil;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Service
+public class StockImportService {
+
+    private static final Logger logger = LogManager.getLogger(StockImportService.class);
+
+    private final StockRepository stockRepository;
+    private final AuthenticatedUserUtil authenticatedUserUtil;
+    private final ObjectMapper objectMapper;
+    private final StockAutocompleteIndex stockAutocompleteIndex;
+    private final int chunkSize;
+    private final int fetchSize;
+    private final int maxReportedFailures;
+
+    public StockImportService(
+            StockRepository stockRepository,
+            AuthenticatedUserUtil authenticatedUserUtil,
+            ObjectMapper objectMapper,
+            StockAutocompleteIndex stockAutocompleteIndex,
+            @Value("${app.stock.import.chunk-size:1000}") int chunkSize,
+            @Value("${app.stock.export.fetch-size:1000}") int fetchSize,
+            @Value("${app.stock.import.max-reported-failures:1000}") int maxReportedFailures
+    ) {
+        this.stockRepository = stockRepository;
+        this.authenticatedUserUtil = authenticatedUserUtil;
+        this.objectMapper = objectMapper;
+        this.stockAutocompleteIndex = stockAutocompleteIndex;
+        this.chunkSize = chunkSize;
+        this.fetchSize = fetchSize;
+        this.maxReportedFailures = maxReportedFailures;
+    }
+
+    public ImportResultDTO importStocks(MultipartFile file, String format) throws Exception {
+        String resolvedFormat = resolveFormat(file, format);
+
+        // Microsecond precision matches the timestamp column, so the rows can be found again by created_at
+        ImportContext context = new ImportContext(authenticatedUserUtil.getAuthenticatedUserId(),
+                LocalDateTime.now().truncatedTo(ChronoUnit.MICROS));
+
+        long start = System.nanoTime();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8))) {
+            if ("csv".equals(resolvedFormat)) {
+                importCsv(reader, context);
+            } else {
+                importNdjson(reader, context);
+            }
+        }
+        flushChunk(context);
+        if (context.inserted > 0) {
+            // Batch inserts do not return ids, read the imported rows back to index them
+            stockRepository.streamCreated(context.createdAt, context.userId, fetchSize, stockAutocompleteIndex::put);
+        }
+        long durationNanos = System.nanoTime() - start;
+
+        double seconds = durationNanos / 1_000_000_000.0;
+        double rowsPerSecond = seconds > 0 ? context.totalRows / seconds : context.totalRows;
+        logger.info("Stock import finished: {} rows, {} inserted, {} failed, {} rows/sec",
+                context.totalRows, context.inserted, context.failed, Math.round(rowsPerSecond));
+
+        return ImportResultDTO.builder()
+                .totalRows(context.totalRows)
+                .inserted(context.inserted)
+                .failed(context.failed)
+                .durationMs(durationNanos / 1_000_000)
+                .rowsPerSecond(rowsPerSecond)
+                .failures(context.failures)
+                .build();
+    }
+
+    private String resolveFormat(MultipartFile file, String format) throws Exception {
+        String resolved = format;
+        if (resolved == null || resolved.isBlank()) {
+            String fileName = file.getOriginalFilename() == null ? "" : file.getOriginalFilename().toLowerCase();
+            resolved = fileName.endsWith(".csv") ? "csv" : fileName.endsWith(".ndjson") || fileName.endsWith(".jsonl") ? "ndjson" : null;
+        }
+
+        if (!"csv".equals(resolved) && !"ndjson".equals(resolved)) {
+            throw new Exception("Unsupported import format, use csv or ndjson");
+        }
+        return resolved;
+    }
+
+    private void importCsv(BufferedReader reader, ImportContext context) throws Exception {
+        List<String> header = readCsvRecord(reader);
+        if (header == null) return;
+
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            columns.put(header.get(i).trim().replace("_", "").toLowerCase(), i);
+        }
+        if (!columns.containsKey("namabarang") || !columns.containsKey("jumlahstok") || !columns.containsKey("nomorseribarang")) {
+            throw new Exception("CSV header must contain namaBarang, jumlahStok and nomorSeriBarang");
+        }
+
+        List<String> record;
+        while ((record = readCsvRecord(reader)) != null) {
+            if (record.size() == 1 && record.get(0).isBlank()) continue;
+
+            long row = ++context.totalRows;
+            String nomorSeriBarang = column(record, columns, "nomorseribarang");
+            try {
+                addRow(context, row, buildStock(
+                        column(record, columns, "namabarang"),
+                        column(record, columns, "jumlahstok"),
+                        nomorSeriBarang,
+                        column(record, columns, "additionalinfo"),
+                        context));
+            } catch (IllegalArgumentException e) {
+                addFailure(context, new ImportRowErrorDTO(row, nomorSeriBarang, e.getMessage()));
+            }
+        }
+    }
+
+    private void importNdjson(BufferedReader reader, ImportContext context) throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank()) continue;
+
+            long row = ++context.totalRows;
+            String nomorSeriBarang = null;
+            try {
+                JsonNode node = objectMapper.readTree(line);
+                nomorSeriBarang = text(node.get("nomorSeriBarang"));
+
+                JsonNode additionalInfo = node.get("additionalInfo");
+                String additionalInfoText = additionalInfo == null || additionalInfo.isNull() ? null
+                        : additionalInfo.isTextual() ? additionalInfo.asText() : additionalInfo.toString();
+
+                addRow(context, row, buildStock(
+                        text(node.get("namaBarang")),
+                        text(node.get("jumlahStok")),
+                        nomorSeriBarang,
+                        additionalInfoText,
+                        context));
+            } catch (JsonProcessingException e) {
+                addFailure(context, new ImportRowErrorDTO(row, null, "Malformed JSON line"));
+            } catch (IllegalArgumentException e) {
+                addFailure(context, new ImportRowErrorDTO(row, nomorSeriBarang, e.getMessage()));
+            }
+        }
+    }
+
+    private Stock buildStock(String namaBarang, String jumlahStok, String nomorSeriBarang, String additionalInfo,
+                             ImportContext context) {
+        if (namaBarang == null || namaBarang.isBlank()) {
+            throw new IllegalArgumentException("'Nama Barang' is required");
+        }
+        if (nomorSeriBarang == null || nomorSeriBarang.isBlank()) {
+            throw new IllegalArgumentException("'Nomor Seri Barang' is required");
+        }
+
+        int quantity;
+        try {
+            quantity = Integer.parseInt(jumlahStok == null ? "" : jumlahStok.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("'Jumlah Stok' must be a whole number");
+        }
+
+        String additionalInfoJson = additionalInfo == null || additionalInfo.isBlank() ? null : additionalInfo;
+        if (additionalInfoJson != null && !JsonUtil.isWellFormed(objectMapper.getFactory(), additionalInfoJson)) {
+            throw new IllegalArgumentException("'Additional Info' is not valid JSON");
+        }
+
+        return Stock.builder()
+                .namaBarang(namaBarang)
+                .jumlahStok(quantity)
+                .nomorSeriBarang(nomorSeriBarang)
+                .additionalInfo(additionalInfoJson)
+                .createdAt(context.createdAt)
+                .createdBy(context.userId)
+                .build();
+    }
+
+    private void addRow(ImportContext context, long row, Stock stock) {
+        context.chunk.add(stock);
+        context.chunkRows.add(row);
+        if (context.chunk.size() >= chunkSize) {
+            flushChunk(context);
+        }
+    }
+
+    private void flushChunk(ImportContext context) {
+        if (context.chunk.isEmpty()) return;
+
+        try {
+            int[] counts = stockRepository.batchInsert(context.chunk);
+            for (int i = 0; i < counts.length; i++) {
+                recordResult(context, i, counts[i]);
+            }
+        } catch (DataAccessException e) {
+            // Something other than a duplicate serial number broke the batch, retry row by row to isolate it
+            for (int i = 0; i < context.chunk.size(); i++) {
+                try {
+                    int[] counts = stockRepository.batchInsert(List.of(context.chunk.get(i)));
+                    recordResult(context, i, counts[0]);
+                } catch (DataAccessException ex) {
+                    addFailure(context, new ImportRowErrorDTO(context.chunkRows.get(i),
+                            context.chunk.get(i).getNomorSeriBarang(), "An error occurred while saving the stock."));
+                }
+            }
+        }
+
+        context.chunk.clear();
+        context.chunkRows.clear();
+    }
+
+    // Every failure is counted, only the first max-reported-failures are kept for the response
+    private void addFailure(ImportContext context, ImportRowErrorDTO failure) {
+        context.failed++;
+        if (context.failures.size() < maxReportedFailures) {
+            context.failures.add(failure);
+        }
+    }
+
+    private void recordResult(ImportContext context, int index, int updateCount) {
+        if (updateCount == 0) {
+            String nomorSeriBarang = context.chunk.get(index).getNomorSeriBarang();
+            addFailure(context, new ImportRowErrorDTO(context.chunkRows.get(index), nomorSeriBarang,
+                    "The 'Nomor Seri Barang' must be unique. The value '" + nomorSeriBarang + "' already exists."));
+        } else {
+            context.inserted++;
+        }
+    }
+
+    private String column(List<String> record, Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        return index == null || index >= record.size() ? null : record.get(index);
+    }
+
+    private String text(JsonNode node) {
+        return node == null || node.isNull() ? null : node.asText();
+    }
+
+    private List<String> readCsvRecord(BufferedReader reader) throws IOException {
+        int c = reader.read();
+        if (c == -1) return null;
+
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean inQuotes = false;
+        while (c != -1) {
+            if (inQuotes) {
+                if (c == '"') {
+                    int next = reader.read();
+                    if (next != '"') {
+                        inQuotes = false;
+                        c = next;
+                        continue;
+                    }
+                }
+                field.append((char) c);
+            } else if (c == '"') {
+                inQuotes = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n') {
+                break;
+            } else if (c != '\r') {
+                field.append((char) c);
+            }
+            c = reader.read();
+        }
+        fields.add(field.toString());
+
+        return fields;
+    }
+
+    private static class ImportContext {
+        private final Long userId;
+        private final LocalDateTime createdAt;
+        private final List<Stock> chunk = new ArrayList<>();
+        private final List<Long> chunkRows = new ArrayList<>();
+        private final List<ImportRowErrorDTO> failures = new ArrayList<>();
+        private long totalRows;
+        private long inserted;
+        private long failed;
+
+        private ImportContext(Long userId, LocalDateTime createdAt) {
+            this.userId = userId;
+            this.createdAt = createdAt;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.bankdkistock.service;
+
+import com.example.bankdkistock.dto.StockQuantityAsOfDTO;
+import com.example.bankdkistock.repository.StockLedgerRepository;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the {@code stock_movements} ledger cheap to query as it grows. Every {@code snapshot-interval-ms} the
+ * movements since the previous snapshot are folded into a {@code stock_snapshots} row per stock that moved, so
+ * "quantity as of T" reads one snapshot and at most one interval of movements. Monthly partitions are created
+ * {@code partitions-ahead} months in advance; with {@code retention-months} set, older partitions that a snapshot
+ * already covers are detached (not dropped) so they can be archived.
+ * <p>
+ * Snapshots are taken at {@code now - settle-lag}: a movement gets its timestamp when it is written but only
+ * becomes visible at commit, and one that commits after the snapshot past its timestamp was taken would be
+ * missed by both the snapshot and the tail after it. The lag has to stay above the longest write transaction.
+ */
+@Service
+public class StockLedgerService {
+
+    private static final Logger logger = LogManager.getLogger(StockLedgerService.class);
+
+    private static final String PARTITION_PREFIX = "stock_movements_";
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+
+    // pg_try_advisory_xact_lock keys, only one instance snapshots or maintains partitions at a time
+    private static final long SNAPSHOT_LOCK = 0x5354_4B4C_0001L;
+    private static final long PARTITION_LOCK = 0x5354_4B4C_0002L;
+
+    private final StockLedgerRepository stockLedgerRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final Duration settleLag;
+    private final int partitionsAhead;
+    private final int retentionMonths;
+
+    private final AtomicLong snapshots = new AtomicLong();
+    private final AtomicLong snapshotRows = new AtomicLong();
+    private final AtomicLong partitionsCreated = new AtomicLong();
+    private final AtomicLong partitionsDetached = new AtomicLong();
+
+    public StockLedgerService(
+            StockLedgerRepository stockLedgerRepository,
+            TransactionTemplate transactionTemplate,
+            @Value("${app.stock.ledger.enabled:true}") boolean enabled,
+            @Value("${app.stock.ledger.settle-lag:5m}") Duration settleLag,
+            @Value("${app.stock.ledger.partitions-ahead:3}") int partitionsAhead,
+            @Value("${app.stock.ledger.retention-months:0}") int retentionMonths
+    ) {
+        this.stockLedgerRepository = stockLedgerRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+        this.settleLag = settleLag;
+        this.partitionsAhead = partitionsAhead;
+        this.retentionMonths = retentionMonths;
+    }
+
+    public StockQuantityAsOfDTO getQuantityAsOf(Long stockId, LocalDateTime asOf) {
+        return stockLedgerRepository.quantityAsOf(stockId, asOf).orElse(null);
+    }
+
+    @Scheduled(fixedDelayString = "${app.stock.ledger.snapshot-interval-ms:3600000}", initialDelayString = "${app.stock.ledger.snapshot-interval-ms:3600000}")
+    public void snapshot() {
+        if (!enabled) return;
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> takeSnapshot());
+        } catch (RuntimeException e) {
+            logger.error("Stock ledger snapshot failed: {}", e.getMessage());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${app.stock.ledger.partition-interval-ms:86400000}", initialDelayString = "${app.stock.ledger.partition-interval-ms:86400000}")
+    public void maintainPartitions() {
+        if (!enabled) return;
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (stockLedgerRepository.tryLock(PARTITION_LOCK)) updatePartitions();
+            });
+        } catch (RuntimeException e) {
+            logger.error("Stock ledger partition maintenance failed: {}", e.getMessage());
+        }
+    }
+
+    public Map<String, Long> stats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("snapshots", snapshots.get());
+        stats.put("snapshotRows", snapshotRows.get());
+        stats.put("partitionsCreated", partitionsCreated.get());
+        stats.put("partitionsDetached", partitionsDetached.get());
+        return stats;
+    }
+
+    private void takeSnapshot() {
+        // Another instance is taking it
+        if (!stockLedgerRepository.tryLock(SNAPSHOT_LOCK)) return;
+
+        LocalDateTime snapshotAt = LocalDateTime.now().minus(settleLag).truncatedTo(ChronoUnit.SECONDS);
+        LocalDateTime previous = stockLedgerRepository.lastSnapshotAt().orElse(null);
+        if (previous != null && !snapshotAt.isAfter(previous)) return;
+
+        int rows = stockLedgerRepository.createSnapshot(previous, snapshotAt);
+        snapshots.incrementAndGet();
+        snapshotRows.addAndGet(rows);
+        logger.info("Stock ledger snapshot at {} written for {} stocks", snapshotAt, rows);
+    }
+
+    private void updatePartitions() {
+        List<String> existing = stockLedgerRepository.findPartitions();
+        YearMonth current = YearMonth.now();
+
+        for (int i = 0; i <= partitionsAhead; i++) {
+            YearMonth month = current.plusMonths(i);
+            String name = partitionName(month);
+            if (existing.contains(name)) continue;
+
+            stockLedgerRepository.createPartition(name, month.atDay(1), month.plusMonths(1).atDay(1));
+            partitionsCreated.incrementAndGet();
+            logger.info("Created stock ledger partition {}", name);
+        }
+
+        if (retentionMonths <= 0) return;
+
+        // A partition may only go once a snapshot after its last movement exists, as-of reads start from it
+        LocalDateTime covered = stockLedgerRepository.lastSnapshotAt().orElse(null);
+        if (covered == null) return;
+
+        YearMonth oldestKept = current.minusMonths(retentionMonths);
+        for (String name : existing) {
+            Optional<YearMonth> month = partitionMonth(name);
+            if (month.isEmpty() || !month.get().isBefore(oldestKept)) continue;
+            if (month.get().plusMonths(1).atDay(1).atStartOfDay().isAfter(covered)) continue;
+
+            stockLedgerRepository.detachPartition(name);
+            partitionsDetached.incrementAndGet();
+            logger.info("Detached stock ledger partition {}, older than {} months", name, retentionMonths);
+        }
+    }
+
+    static String partitionName(YearMonth month) {
+        return PARTITION_PREFIX + month.format(PARTITION_SUFFIX);
+    }
+
+    // Empty for the default partition and anything not created by this service
+    static Optional<YearMonth> partitionMonth(String name) {
+        if (!name.startsWith(PARTITION_PREFIX)) return Optional.empty();
+        try {
+            return Optional.of(YearMonth.parse(name.substring(PARTITION_PREFIX.length()), PARTITION_SUFFIX));
+        } catch (DateTimeParseException e) {
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.example.bankdkistock.service;
+
+import com.example.bankdkistock.model.Stock;
+import com.example.bankdkistock.repository.StockRepository;
+import jakarta.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Combines concurrent quantity adjustments on the same stock into one UPDATE per flush. Request threads only
+ * take a striped in-memory lock to add their delta, so a hot item costs one row lock per flush interval instead
+ * of one per request. When the combined delta would go below zero the pending deltas are replayed one by one,
+ * so every caller still gets the same accept/reject answer it would have had without coalescing.
+ * <p>
+ * Flushing runs on its own threads, not on the shared {@code @Scheduled} scheduler, so a long background job
+ * never holds up adjustments. Each stripe is flushed by at most one worker at a time (a stock always maps to
+ * the same stripe, so its UPDATEs stay in order) while different stripes flush in parallel.
+ */
+@Service
+public class StockQuantityCoalescer {
+
+    private static final Logger logger = LogManager.getLogger(StockQuantityCoalescer.class);
+
+    private final StockRepository stockRepository;
+
+    private final ReentrantLock[] locks;
+    private final Map<Long, PendingAdjustment>[] pending;
+    private final AtomicBoolean[] flushing;
+
+    private final ScheduledExecutorService ticker;
+    private final ThreadPoolExecutor workers;
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong statements = new AtomicLong();
+    private final AtomicLong replayed = new AtomicLong();
+
+    @SuppressWarnings("unchecked")
+    public StockQuantityCoalescer(
+            StockRepository stockRepository,
+            @Value("${app.stock.quantity.coalesce.stripes:64}") int stripes,
+            @Value("${app.stock.quantity.coalesce.flush-interval-ms:5}") long flushIntervalMs,
+            @Value("${app.stock.quantity.coalesce.flush-threads:4}") int flushThreads
+    ) {
+        this.stockRepository = stockRepository;
+        this.locks = new ReentrantLock[stripes];
+        this.pending = new Map[stripes];
+        this.flushing = new AtomicBoolean[stripes];
+        for (int i = 0; i < stripes; i++) {
+            locks[i] = new ReentrantLock();
+            pending[i] = new HashMap<>();
+            flushing[i] = new AtomicBoolean();
+        }
+
+        // At most one queued task per stripe, so the unbounded queue never holds more than stripes entries
+        AtomicInteger threadCount = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(flushThreads, flushThreads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "stock-quantity-flush-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "stock-quantity-ticker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.ticker.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    // Completes with the stock after the flush that applied the delta, or empty when it was rejected
+    public CompletableFuture<Optional<Stock>> submit(Long id, int delta, Long updatedBy) {
+        Waiter waiter = new Waiter(delta, updatedBy, new CompletableFuture<>());
+
+        int stripe = Math.floorMod(id.hashCode(), locks.length);
+        locks[stripe].lock();
+        try {
+            PendingAdjustment adjustment = pending[stripe].computeIfAbsent(id, key -> new PendingAdjustment());
+            adjustment.netDelta += delta;
+            adjustment.waiters.add(waiter);
+        } finally {
+            locks[stripe].unlock();
+        }
+
+        submitted.incrementAndGet();
+        return waiter.result;
+    }
+
+    // Hands every stripe with pending deltas to a worker, skipping stripes whose previous batch is still running
+    public void flush() {
+        for (int stripe = 0; stripe < locks.length; stripe++) {
+            if (!flushing[stripe].compareAndSet(false, true)) continue;
+
+            Map<Long, PendingAdjustment> batch = null;
+            locks[stripe].lock();
+            try {
+                if (!pending[stripe].isEmpty()) {
+                    batch = pending[stripe];
+                    pending[stripe] = new HashMap<>();
+                }
+            } finally {
+                locks[stripe].unlock();
+            }
+
+            if (batch == null) {
+                flushing[stripe].set(false);
+                continue;
+            }
+
+            int flushed = stripe;
+            Map<Long, PendingAdjustment> flushedBatch = batch;
+            workers.execute(() -> {
+                try {
+                    flushedBatch.forEach(this::apply);
+                } finally {
+                    flushing[flushed].set(false);
+                }
+            });
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ticker.shutdownNow();
+        workers.shutdown();
+    }
+
+    public Map<String, Long> stats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("submitted", submitted.get());
+        stats.put("statements", statements.get());
+        stats.put("replayed", replayed.get());
+        return stats;
+    }
+
+    private void apply(Long id, PendingAdjustment adjustment) {
+        List<Waiter> waiters = adjustment.waiters;
+        try {
+            Long updatedBy = waiters.get(waiters.size() - 1).updatedBy;
+            statements.incrementAndGet();
+            Optional<Stock> result = stockRepository.adjustQuantity(id, adjustment.netDelta, updatedBy, LocalDateTime.now());
+            if (result.isPresent() || waiters.size() == 1) {
+                waiters.forEach(waiter -> waiter.result.complete(result));
+                return;
+            }
+
+            // The net change was rejected (or the stock is gone), apply each delta on its own in arrival order
+            replayed.addAndGet(waiters.size());
+            for (Waiter waiter : waiters) {
+                statements.incrementAndGet();
+                waiter.result.complete(stockRepository.adjustQuantity(id, waiter.delta, waiter.updatedBy, LocalDateTime.now()));
+            }
+        } catch (RuntimeException e) {
+            logger.error("Failed to apply coalesced quantity change for stock {}: {}", id, e.getMessage());
+            waiters.forEach(waiter -> waiter.result.completeExceptionally(e));
+        }
+    }
+
+    private static class PendingAdjustment {
+        private int netDelta;
+        private final List<Waiter> waiters = new ArrayList<>();
+    }
+
+    private record Waiter(int delta, Long updatedBy, CompletableFuture<Optional<Stock>> result) {
+    }
+}
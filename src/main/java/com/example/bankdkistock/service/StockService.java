@@ -1,144 +1,309 @@
 package com.example.bankdkistock.service;
 
+import com.example.bankdkistock.dto.CursorPageDTO;
 import com.example.bankdkistock.dto.RequestStockDTO;
 import com.example.bankdkistock.dto.ResponseStockDTO;
+import com.example.bankdkistock.dto.StockFilterDTO;
 import com.example.bankdkistock.model.Stock;
-import com.example.bankdkistock.model.User;
 import com.example.bankdkistock.repository.StockRepository;
 import com.example.bankdkistock.util.AuthenticatedUserUtil;
-import com.fasterxml.jackson.databind.JsonNode;
+import com.example.bankdkistock.util.CacheStatsRegistry;
+import com.example.bankdkistock.util.CacheUtil;
+import com.example.bankdkistock.util.DataSourceRouting;
+import com.example.bankdkistock.util.JsonUtil;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
-import java.io.InputStream;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.LongPredicate;
 import java.util.stream.Collectors;
 
 @Service
 public class StockService {
 
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 500;
+
     private final StockRepository stockRepository;
-    private final UserService userService;
     private final AuthenticatedUserUtil authenticatedUserUtil;
     private final ObjectMapper objectMapper;
+    private final ImageStorageService imageStorageService;
+    private final ImageVariantService imageVariantService;
+    private final StockQuantityCoalescer stockQuantityCoalescer;
+    private final StockAutocompleteIndex stockAutocompleteIndex;
+    private final int exportFetchSize;
+    private final boolean coalesceQuantityByDefault;
+    private final long coalesceTimeoutMs;
+    private final int maxBulkDelete;
+
+    // Read-through cache for /stocks/detail, invalidated by every write to the same id
+    private final AsyncCache<Long, ResponseStockDTO> stockDetails;
 
     public StockService(
             StockRepository stockRepository,
-            UserService userService,
             AuthenticatedUserUtil authenticatedUserUtil,
-            ObjectMapper objectMapper
+            ObjectMapper objectMapper,
+            ImageStorageService imageStorageService,
+            ImageVariantService imageVariantService,
+            StockQuantityCoalescer stockQuantityCoalescer,
+            StockAutocompleteIndex stockAutocompleteIndex,
+            CacheStatsRegistry cacheStatsRegistry,
+            @Value("${app.stock.export.fetch-size:1000}") int exportFetchSize,
+            @Value("${app.stock.quantity.coalesce.enabled:false}") boolean coalesceQuantityByDefault,
+            @Value("${app.stock.quantity.coalesce.timeout-ms:5000}") long coalesceTimeoutMs,
+            @Value("${app.stock.detail-cache.max-size:10000}") long detailCacheMaxSize,
+            @Value("${app.stock.detail-cache.ttl:5m}") Duration detailCacheTtl,
+            @Value("${app.stock.bulk-delete.max-ids:1000}") int maxBulkDelete
     ) {
         this.stockRepository = stockRepository;
-        this.userService = userService;
         this.authenticatedUserUtil = authenticatedUserUtil;
         this.objectMapper = objectMapper;
+        this.imageStorageService = imageStorageService;
+        this.imageVariantService = imageVariantService;
+        this.stockQuantityCoalescer = stockQuantityCoalescer;
+        this.stockAutocompleteIndex = stockAutocompleteIndex;
+        this.exportFetchSize = exportFetchSize;
+        this.coalesceQuantityByDefault = coalesceQuantityByDefault;
+        this.coalesceTimeoutMs = coalesceTimeoutMs;
+        this.maxBulkDelete = maxBulkDelete;
+        this.stockDetails = Caffeine.newBuilder()
+                .maximumSize(detailCacheMaxSize)
+                .expireAfterWrite(detailCacheTtl)
+                .recordStats()
+                .buildAsync();
+
+        cacheStatsRegistry.register("stockDetails", stockDetails.synchronous());
     }
 
     public ResponseStockDTO createStock(RequestStockDTO requestStockDTO) throws Exception {
-        String username = authenticatedUserUtil.getAuthenticatedUsername();
-        User currentUser = userService.findByUsername(username);
+        Long currentUserId = authenticatedUserUtil.getAuthenticatedUserId();
 
         Stock stock = Stock.builder()
                 .namaBarang(requestStockDTO.getNamaBarang())
                 .jumlahStok(requestStockDTO.getJumlahStok())
                 .nomorSeriBarang(requestStockDTO.getNomorSeriBarang())
-                .additionalInfo(requestStockDTO.getAdditionalInfo())
+                .additionalInfo(validateAdditionalInfo(requestStockDTO.getAdditionalInfo()))
                 .createdAt(LocalDateTime.now())
-                .createdBy(currentUser.getId())
+                .createdBy(currentUserId)
                 .build();
 
         if (requestStockDTO.getGambarBarang() != null && !requestStockDTO.getGambarBarang().isEmpty()) {
             validateImage(requestStockDTO.getGambarBarang());
-            String imagePath = saveImage(requestStockDTO.getGambarBarang());
+            String imagePath = imageStorageService.store(requestStockDTO.getGambarBarang());
             stock.setGambarBarang(imagePath);
         }
 
+        Stock savedStock;
         try {
-            Stock savedStock = stockRepository.save(stock);
-            return convertToDTO(savedStock);
-        } catch (DataIntegrityViolationException ex) {
+            savedStock = stockRepository.save(stock);
+        } catch (RuntimeException ex) {
+            // The row was not written, give back the reference taken for its image
+            if (stock.getGambarBarang() != null) imageStorageService.release(stock.getGambarBarang());
+
+            if (!(ex instanceof DataIntegrityViolationException)) throw ex;
             if (ex.getMessage().contains("uc_stock_nomorseribarang")) {
                 throw new Exception("The 'Nomor Seri Barang' must be unique. The value '" + requestStockDTO.getNomorSeriBarang() + "' already exists.");
             }
 
             throw new Exception("An error occurred while saving the stock.");
         }
+
+        stockAutocompleteIndex.put(savedStock);
+        imageVariantService.submit(savedStock.getGambarBarang());
+        return convertToDTO(savedStock);
     }
 
-    public List<ResponseStockDTO> listAllStocks() {
-        return stockRepository.findAll().stream()
-                .map(stock -> {
-                    try {
-                        return convertToDTO(stock);
-                    } catch (Exception e) {
-                        throw new RuntimeException("Error converting stock to DTO", e);
-                    }
-                })
+    /**
+     * Returns null without running the page query when {@code notModified} accepts the current table version.
+     * Version and page share one read-only transaction, so with replicas they come from the same server and the
+     * version is never newer than the rows it is sent with.
+     */
+    @Transactional(readOnly = true)
+    public CursorPageDTO<ResponseStockDTO> listStocks(StockFilterDTO filter, LongPredicate notModified) {
+        if (notModified.test(stockRepository.tableVersion())) {
+            return null;
+        }
+        return listStocks(filter);
+    }
+
+    public CursorPageDTO<ResponseStockDTO> listStocks(StockFilterDTO filter) {
+        int limit = filter.getLimit() == null ? DEFAULT_PAGE_SIZE : Math.min(Math.max(filter.getLimit(), 1), MAX_PAGE_SIZE);
+
+        LocalDateTime cursorCreatedAt = null;
+        Long cursorId = null;
+        if (filter.getCursor() != null && !filter.getCursor().isBlank()) {
+            String[] cursor = decodeCursor(filter.getCursor());
+            cursorCreatedAt = LocalDateTime.parse(cursor[0]);
+            cursorId = Long.parseLong(cursor[1]);
+        }
+
+        // Fetch one extra row to know whether another page exists
+        List<Stock> stocks = stockRepository.findPage(filter, cursorCreatedAt, cursorId, limit + 1);
+        boolean hasMore = stocks.size() > limit;
+        if (hasMore) stocks = stocks.subList(0, limit);
+
+        List<ResponseStockDTO> items = stocks.stream()
+                .map(StockService::convertToDTO)
                 .collect(Collectors.toList());
+
+        String nextCursor = null;
+        if (hasMore) {
+            Stock last = stocks.get(stocks.size() - 1);
+            nextCursor = encodeCursor(last.getCreatedAt(), last.getId());
+        }
+
+        return CursorPageDTO.<ResponseStockDTO>builder()
+                .items(items)
+                .nextCursor(nextCursor)
+                .limit(limit)
+                .build();
+    }
+
+    public void exportStocks(String format, OutputStream outputStream) throws IOException {
+        try {
+            if ("csv".equals(format)) {
+                exportCsv(outputStream);
+            } else {
+                exportNdjson(outputStream);
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
     }
 
     public ResponseStockDTO updateStock(Long id, RequestStockDTO requestStockDTO) throws Exception {
-        String username = authenticatedUserUtil.getAuthenticatedUsername();
-        User currentUser = userService.findByUsername(username);
+        Long currentUserId = authenticatedUserUtil.getAuthenticatedUserId();
 
-        Optional<Stock> existingStockOptional = stockRepository.findById(id);
+        Optional<Stock> existingStockOptional = DataSourceRouting.primary(() -> stockRepository.findById(id));
         if (existingStockOptional.isEmpty()) return null;
 
         Stock existingStock = existingStockOptional.get();
-        updateStockDetails(existingStock, requestStockDTO, currentUser);
+        String previousImagePath = existingStock.getGambarBarang();
+        boolean imageReplaced = updateStockDetails(existingStock, requestStockDTO, currentUserId);
+
+        Stock updatedStock;
+        try {
+            updatedStock = stockRepository.save(existingStock);
+        } catch (RuntimeException ex) {
+            // The row still points at the previous image, the new upload is not used by anything
+            if (imageReplaced) imageStorageService.release(existingStock.getGambarBarang());
+            throw ex;
+        }
+        stockDetails.synchronous().invalidate(id);
+        stockAutocompleteIndex.put(updatedStock);
+
+        // Drop the old reference only once the row points at the new image
+        if (imageReplaced) {
+            imageVariantService.submit(updatedStock.getGambarBarang());
+            if (previousImagePath != null) imageStorageService.release(previousImagePath);
+        }
 
-        Stock updatedStock = stockRepository.save(existingStock);
         return convertToDTO(updatedStock);
     }
 
+    public ResponseStockDTO adjustQuantity(Long id, int amount, boolean decrement, Boolean coalesce) throws Exception {
+        if (amount <= 0) {
+            throw new Exception("'Amount' must be greater than zero");
+        }
+
+        Long currentUserId = authenticatedUserUtil.getAuthenticatedUserId();
+        int delta = decrement ? -amount : amount;
+
+        Optional<Stock> adjustedStock;
+        if (coalesce != null ? coalesce : coalesceQuantityByDefault) {
+            try {
+                // Evicts on the flush that applies the delta, also when this caller has already stopped waiting
+                adjustedStock = stockQuantityCoalescer.submit(id, delta, currentUserId)
+                        .whenComplete((stock, error) -> {
+                            if (stock != null && stock.isPresent()) stockDetails.synchronous().invalidate(id);
+                        })
+                        .get(coalesceTimeoutMs, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                // The delta stays queued and will still be applied, the caller just stops waiting for it
+                throw new Exception("The stock change is still pending, check the stock detail for the result.");
+            } catch (ExecutionException e) {
+                throw new Exception("An error occurred while saving the stock.");
+            }
+        } else {
+            adjustedStock = stockRepository.adjustQuantity(id, delta, currentUserId, LocalDateTime.now());
+        }
+
+        if (adjustedStock.isEmpty()) {
+            if (DataSourceRouting.primary(() -> stockRepository.findById(id)).isEmpty()) return null;
+            throw new Exception("Insufficient stock, 'Jumlah Stok' cannot go below zero.");
+        }
+
+        stockDetails.synchronous().invalidate(id);
+        return convertToDTO(adjustedStock.get());
+    }
+
     public ResponseStockDTO getStockById(Long id) {
-        return stockRepository.findById(id)
-                .map(stock -> {
-                    try {
-                        return convertToDTO(stock);
-                    } catch (Exception e) {
-                        throw new RuntimeException("Error converting stock to DTO", e);
-                    }
-                })
-                .orElse(null);
+        // Missing ids are not cached, a load returning null stores nothing. Loads go to the primary: a row from a
+        // lagging replica would be served to everyone, the writer included, until the entry expires
+        return CacheUtil.getOrLoad(stockDetails, id, key -> DataSourceRouting.primary(() -> stockRepository.findById(key))
+                .map(StockService::convertToDTO)
+                .orElse(null));
     }
 
     public boolean deleteStock(Long id) {
-        return stockRepository.findById(id)
-                .map(stock -> {
-                    if (stock.getGambarBarang() != null) {
-                        deleteOldImage(stock.getGambarBarang());
-                    }
+        return !deleteStocks(List.of(id)).isEmpty();
+    }
 
-                    stockRepository.delete(stock);
+    // Set-based delete, image files are removed later by ImageCleanupService
+    public List<Long> deleteStocks(List<Long> ids) {
+        if (ids == null || ids.isEmpty()) return List.of();
+
+        List<Long> distinctIds = ids.stream().filter(Objects::nonNull).distinct().toList();
+        if (distinctIds.size() > maxBulkDelete) {
+            throw new IllegalArgumentException("At most " + maxBulkDelete + " stocks can be deleted at once");
+        }
 
-                    return true;
-                }).orElse(false);
+        List<Long> deleted = stockRepository.deleteAll(distinctIds);
+        stockDetails.synchronous().invalidateAll(deleted);
+        deleted.forEach(stockAutocompleteIndex::remove);
+        return deleted;
     }
 
-    private ResponseStockDTO convertToDTO(Stock stock) throws Exception {
-        JsonNode additionalInfoJson = null;
-        if (stock.getAdditionalInfo() != null) {
-            additionalInfoJson = objectMapper.readTree(stock.getAdditionalInfo());
-        }
+    // Only content-addressed uploads get variants, older uploads are served as they are through gambarBarang
+    private static String variantOf(String gambarBarang, String variant) {
+        return ImageStorageService.isContentAddressed(gambarBarang)
+                ? ImageStorageService.variantPublicPath(gambarBarang, variant)
+                : null;
+    }
 
+    public static ResponseStockDTO convertToDTO(Stock stock) {
         return ResponseStockDTO.builder()
                 .id(stock.getId())
                 .namaBarang(stock.getNamaBarang())
                 .jumlahStok(stock.getJumlahStok())
                 .nomorSeriBarang(stock.getNomorSeriBarang())
-                .additionalInfo(additionalInfoJson)
+                .additionalInfo(stock.getAdditionalInfo())
                 .gambarBarang(stock.getGambarBarang())
+                .gambarBarangThumbnail(variantOf(stock.getGambarBarang(), "thumb"))
+                .gambarBarangMedium(variantOf(stock.getGambarBarang(), "medium"))
                 .createdAt(stock.getCreatedAt())
                 .createdBy(stock.getCreatedBy())
                 .updatedAt(stock.getUpdatedAt())
@@ -146,81 +311,137 @@ public class StockService {
                 .build();
     }
 
-    private void updateStockDetails(Stock existingStock, RequestStockDTO requestStockDTO, User currentUser) throws Exception {
-        existingStock.setNamaBarang(requestStockDTO.getNamaBarang());
-        existingStock.setJumlahStok(requestStockDTO.getJumlahStok());
-        existingStock.setNomorSeriBarang(requestStockDTO.getNomorSeriBarang());
-        existingStock.setAdditionalInfo(requestStockDTO.getAdditionalInfo());
-        existingStock.setUpdatedAt(LocalDateTime.now());
-        existingStock.setUpdatedBy(currentUser.getId());
+    private void exportNdjson(OutputStream outputStream) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.setRootValueSeparator(null);
+
+        stockRepository.streamAll(exportFetchSize, stock -> {
+            try {
+                generator.writeStartObject();
+                generator.writeNumberField("id", stock.getId());
+                generator.writeStringField("namaBarang", stock.getNamaBarang());
+                generator.writeNumberField("jumlahStok", stock.getJumlahStok());
+                generator.writeStringField("nomorSeriBarang", stock.getNomorSeriBarang());
+                generator.writeFieldName("additionalInfo");
+                if (stock.getAdditionalInfo() != null) {
+                    // additional_info comes straight from a jsonb column, so it is already valid JSON
+                    generator.writeRawValue(stock.getAdditionalInfo());
+                } else {
+                    generator.writeNull();
+                }
+                generator.writeStringField("gambarBarang", stock.getGambarBarang());
+                generator.writeStringField("createdAt", stock.getCreatedAt().toString());
+                generator.writeNumberField("createdBy", stock.getCreatedBy());
+                generator.writeStringField("updatedAt", stock.getUpdatedAt() != null ? stock.getUpdatedAt().toString() : null);
+                if (stock.getUpdatedBy() != null) {
+                    generator.writeNumberField("updatedBy", stock.getUpdatedBy());
+                } else {
+                    generator.writeNullField("updatedBy");
+                }
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
 
-        if (requestStockDTO.getGambarBarang() != null && !requestStockDTO.getGambarBarang().isEmpty()) {
-            validateImage(requestStockDTO.getGambarBarang());
-            String newImagePath = saveImage(requestStockDTO.getGambarBarang());
+        generator.close();
+    }
 
-            if (existingStock.getGambarBarang() != null) {
-                deleteOldImage(existingStock.getGambarBarang());
+    private void exportCsv(OutputStream outputStream) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        writer.write("id,nama_barang,jumlah_stok,nomor_seri_barang,additional_info,gambar_barang,created_at,created_by,updated_at,updated_by\n");
+
+        stockRepository.streamAll(exportFetchSize, stock -> {
+            try {
+                writer.write(String.valueOf(stock.getId()));
+                writer.write(',');
+                writer.write(csvField(stock.getNamaBarang()));
+                writer.write(',');
+                writer.write(String.valueOf(stock.getJumlahStok()));
+                writer.write(',');
+                writer.write(csvField(stock.getNomorSeriBarang()));
+                writer.write(',');
+                writer.write(csvField(stock.getAdditionalInfo()));
+                writer.write(',');
+                writer.write(csvField(stock.getGambarBarang()));
+                writer.write(',');
+                writer.write(stock.getCreatedAt().toString());
+                writer.write(',');
+                writer.write(String.valueOf(stock.getCreatedBy()));
+                writer.write(',');
+                writer.write(stock.getUpdatedAt() != null ? stock.getUpdatedAt().toString() : "");
+                writer.write(',');
+                writer.write(stock.getUpdatedBy() != null ? String.valueOf(stock.getUpdatedBy()) : "");
+                writer.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
             }
+        });
 
-            existingStock.setGambarBarang(newImagePath);
-        }
+        writer.flush();
     }
 
-    private void validateImage(MultipartFile imageFile) throws Exception {
-        String contentType = imageFile.getContentType();
-        if (!"image/jpeg".equals(contentType) && !"image/png".equals(contentType)) {
-            throw new Exception("Only JPG and PNG images are allowed");
+    private String csvField(String value) {
+        if (value == null) return "";
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
         }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
 
-        byte[] fileBytes = imageFile.getBytes();
+    private String encodeCursor(LocalDateTime createdAt, Long id) {
+        String raw = createdAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
 
-        if (!isValidImageSignature(fileBytes)) {
-            throw new Exception("Invalid image file: file content does not match extension");
+    private String[] decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|");
+            if (parts.length != 2) throw new IllegalArgumentException("Invalid cursor");
+
+            LocalDateTime.parse(parts[0]);
+            Long.parseLong(parts[1]);
+            return parts;
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor");
         }
     }
 
-    private boolean isValidImageSignature(byte[] fileBytes) {
-        // JPEG files start with FF D8 FF
-        byte[] jpegSignature = new byte[]{(byte) 0xFF, (byte) 0xD8, (byte) 0xFF};
+    private boolean updateStockDetails(Stock existingStock, RequestStockDTO requestStockDTO, Long currentUserId) throws Exception {
+        existingStock.setNamaBarang(requestStockDTO.getNamaBarang());
+        existingStock.setJumlahStok(requestStockDTO.getJumlahStok());
+        existingStock.setNomorSeriBarang(requestStockDTO.getNomorSeriBarang());
+        existingStock.setAdditionalInfo(validateAdditionalInfo(requestStockDTO.getAdditionalInfo()));
+        existingStock.setUpdatedAt(LocalDateTime.now());
+        existingStock.setUpdatedBy(currentUserId);
 
-        // PNG files start with 89 50 4E 47 0D 0A 1A 0A
-        byte[] pngSignature = new byte[]{(byte) 0x89, 0x50, 0x4E, 0x47, 0x0D, 0x0A, 0x1A, 0x0A};
+        if (requestStockDTO.getGambarBarang() != null && !requestStockDTO.getGambarBarang().isEmpty()) {
+            validateImage(requestStockDTO.getGambarBarang());
+            String newImagePath = imageStorageService.store(requestStockDTO.getGambarBarang());
+            existingStock.setGambarBarang(newImagePath);
 
-        if (fileBytes.length > 3 && startsWith(fileBytes, jpegSignature)) {
             return true;
         }
 
-        return fileBytes.length > 8 && startsWith(fileBytes, pngSignature);
-    }
-
-    private boolean startsWith(byte[] fileBytes, byte[] signature) {
-        for (int i = 0; i < signature.length; i++) {
-            if (fileBytes[i] != signature[i]) {
-                return false;
-            }
-        }
-        return true;
+        return false;
     }
 
-    private String saveImage(MultipartFile imageFile) throws IOException {
-        String fileName = UUID.randomUUID() + "_" + imageFile.getOriginalFilename();
-        Path uploadPath = Paths.get("src/main/resources/static/uploads/");
-        if (!Files.exists(uploadPath)) Files.createDirectories(uploadPath);
+    private String validateAdditionalInfo(String additionalInfo) throws Exception {
+        if (additionalInfo == null || additionalInfo.isBlank()) return null;
 
-        Path filePath = uploadPath.resolve(fileName);
-        try (InputStream inputStream = imageFile.getInputStream()) {
-            Files.copy(inputStream, filePath, StandardCopyOption.REPLACE_EXISTING);
+        if (!JsonUtil.isWellFormed(objectMapper.getFactory(), additionalInfo)) {
+            throw new Exception("'Additional Info' is not valid JSON");
         }
-
-        return "/uploads/" + fileName;
+        return additionalInfo;
     }
 
-    private void deleteOldImage(String oldImagePath) {
-        Path oldImageFile = Paths.get("src/main/resources/static" + oldImagePath);
-        try {
-            Files.deleteIfExists(oldImageFile);
-        } catch (IOException e) {
-            System.err.println("Failed to delete old image: " + e.getMessage());
+    private void validateImage(MultipartFile imageFile) throws Exception {
+        String contentType = imageFile.getContentType();
+        if (!"image/jpeg".equals(contentType) && !"image/png".equals(contentType)) {
+            throw new Exception("Only JPG and PNG images are allowed");
         }
     }
 }
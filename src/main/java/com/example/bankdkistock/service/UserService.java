@@ -2,20 +2,46 @@ package com.example.bankdkistock.service;
 
 import com.example.bankdkistock.model.User;
 import com.example.bankdkistock.repository.UserRepository;
+import com.example.bankdkistock.util.CacheStatsRegistry;
+import com.example.bankdkistock.util.CacheUtil;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+
+/**
+ * Users by username for login and token checks. The application never changes a user after seeding them, so
+ * nothing evicts entries: a password or user changed directly in the database is picked up within
+ * {@code app.user.cache.ttl}.
+ */
 @Service
 public class UserService {
 
     private final UserRepository userRepository;
+    private final AsyncCache<String, User> usersByUsername;
 
     @Autowired
-    public UserService(UserRepository userRepository) {
+    public UserService(
+            UserRepository userRepository,
+            CacheStatsRegistry cacheStatsRegistry,
+            @Value("${app.user.cache.max-size:1000}") long cacheMaxSize,
+            @Value("${app.user.cache.ttl:10m}") Duration cacheTtl
+    ) {
         this.userRepository = userRepository;
+        this.usersByUsername = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(cacheTtl)
+                .recordStats()
+                .buildAsync();
+
+        cacheStatsRegistry.register("users", usersByUsername.synchronous());
     }
 
     public User findByUsername(String username) {
-        return userRepository.findByUsername(username).orElse(null);
+        // Unknown usernames are not cached, a load returning null stores nothing
+        return CacheUtil.getOrLoad(usersByUsername, username, key -> userRepository.findByUsername(key).orElse(null));
     }
 }
@@ -1,5 +1,6 @@
 package com.example.bankdkistock.util;
 
+import com.example.bankdkistock.security.AuthenticatedUser;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -15,4 +16,12 @@ public class AuthenticatedUserUtil {
         }
         throw new RuntimeException("User is not authenticated");
     }
+
+    public Long getAuthenticatedUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof AuthenticatedUser user) {
+            return user.getId();
+        }
+        throw new RuntimeException("User is not authenticated");
+    }
 }
@@ -0,0 +1,50 @@
+package com.example.bankdkistock.util;
+
+import com.example.bankdkistock.dto.CacheStatsDTO;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Component
+public class CacheStatsRegistry implements MeterBinder {
+
+    private final Map<String, Cache<?, ?>> caches = new ConcurrentHashMap<>();
+
+    private volatile MeterRegistry meterRegistry;
+
+    public void register(String name, Cache<?, ?> cache) {
+        caches.put(name, cache);
+
+        // Caches created after the registry was bound are exported straight away, earlier ones in bindTo
+        MeterRegistry registry = meterRegistry;
+        if (registry != null) CaffeineCacheMetrics.monitor(registry, cache, name);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        this.meterRegistry = registry;
+        caches.forEach((name, cache) -> CaffeineCacheMetrics.monitor(registry, cache, name));
+    }
+
+    public Map<String, CacheStatsDTO> snapshot() {
+        Map<String, CacheStatsDTO> result = new TreeMap<>();
+        caches.forEach((name, cache) -> {
+            CacheStats stats = cache.stats();
+            result.put(name, CacheStatsDTO.builder()
+                    .estimatedSize(cache.estimatedSize())
+                    .hitCount(stats.hitCount())
+                    .missCount(stats.missCount())
+                    .hitRate(stats.hitRate())
+                    .evictionCount(stats.evictionCount())
+                    .build());
+        });
+        return result;
+    }
+}
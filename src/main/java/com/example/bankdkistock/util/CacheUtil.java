@@ -0,0 +1,44 @@
+package com.example.bankdkistock.util;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+public final class CacheUtil {
+
+    private CacheUtil() {
+    }
+
+    /**
+     * Read-through lookup that runs the loader on the calling thread outside any cache lock. {@code Cache.get(key, loader)}
+     * loads inside {@code ConcurrentHashMap.compute}, which holds a monitor for the whole database call and pins a
+     * virtual thread to its carrier. Concurrent callers for the same key still share one load through the future, an
+     * invalidation during the load drops the future so the result is never cached, and a null result caches nothing.
+     */
+    public static <K, V> V getOrLoad(AsyncCache<K, V> cache, K key, Function<K, V> loader) {
+        CompletableFuture<V> cached = cache.getIfPresent(key);
+        if (cached == null) {
+            CompletableFuture<V> loading = new CompletableFuture<>();
+            cached = cache.asMap().putIfAbsent(key, loading);
+            if (cached == null) {
+                try {
+                    V value = loader.apply(key);
+                    loading.complete(value);
+                    return value;
+                } catch (RuntimeException e) {
+                    loading.completeExceptionally(e);
+                    throw e;
+                }
+            }
+        }
+
+        try {
+            return cached.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.bankdkistock.util;
+
+import java.util.function.Supplier;
+
+/**
+ * Pins reads to the primary for the current thread. Used where a read feeds a write (update, delete), so the
+ * row being changed is never taken from a lagging replica. Without replicas configured this is a no-op.
+ */
+public final class DataSourceRouting {
+
+    private static final ThreadLocal<Boolean> PRIMARY = new ThreadLocal<>();
+
+    private DataSourceRouting() {
+    }
+
+    public static <T> T primary(Supplier<T> action) {
+        if (Boolean.TRUE.equals(PRIMARY.get())) return action.get();
+
+        PRIMARY.set(Boolean.TRUE);
+        try {
+            return action.get();
+        } finally {
+            PRIMARY.remove();
+        }
+    }
+
+    public static boolean isPrimaryRequired() {
+        return Boolean.TRUE.equals(PRIMARY.get());
+    }
+}
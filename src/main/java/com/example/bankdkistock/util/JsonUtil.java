@@ -0,0 +1,23 @@
+package com.example.bankdkistock.util;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+
+import java.io.IOException;
+
+public final class JsonUtil {
+
+    private JsonUtil() {
+    }
+
+    // Streams through the tokens without building a tree, true when the text is exactly one JSON value
+    public static boolean isWellFormed(JsonFactory jsonFactory, String json) {
+        try (JsonParser parser = jsonFactory.createParser(json)) {
+            if (parser.nextToken() == null) return false;
+            parser.skipChildren();
+            return parser.nextToken() == null;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
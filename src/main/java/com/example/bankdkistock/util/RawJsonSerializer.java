@@ -0,0 +1,37 @@
+package com.example.bankdkistock.util;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.json.JsonGeneratorImpl;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+
+/**
+ * Writes a string that already holds JSON (stored jsonb text) as a JSON value. JSON output gets the text
+ * as-is like {@code @JsonRawValue}; CBOR and Smile cannot embed raw text, so there the value is streamed
+ * token by token into the binary encoding without building a tree.
+ */
+public class RawJsonSerializer extends StdSerializer<String> {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    public RawJsonSerializer() {
+        super(String.class);
+    }
+
+    @Override
+    public void serialize(String value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+        if (generator instanceof JsonGeneratorImpl) {
+            generator.writeRawValue(value);
+            return;
+        }
+
+        try (JsonParser parser = JSON_FACTORY.createParser(value)) {
+            parser.nextToken();
+            generator.copyCurrentStructure(parser);
+        }
+    }
+}
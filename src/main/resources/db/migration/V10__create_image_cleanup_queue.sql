@@ -0,0 +1,15 @@
+-- Files waiting to be removed from the upload directory, written in the same transaction that dropped the
+-- last reference. Worked off by ImageCleanupService with retries, so a failed delete is never forgotten.
+CREATE TABLE image_cleanup_queue
+(
+    id              BIGSERIAL PRIMARY KEY,
+    path            VARCHAR(255)                NOT NULL,
+    -- TRUE for content-addressed files tracked in image_refs, FALSE for uploads from before that
+    referenced      BOOLEAN                     NOT NULL,
+    attempts        INTEGER                     NOT NULL DEFAULT 0,
+    last_error      VARCHAR(500),
+    next_attempt_at TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    created_at      TIMESTAMP WITHOUT TIME ZONE NOT NULL
+);
+
+CREATE INDEX idx_image_cleanup_queue_next_attempt ON image_cleanup_queue (next_attempt_at);
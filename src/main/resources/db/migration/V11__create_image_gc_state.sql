@@ -0,0 +1,16 @@
+-- Orphan image collector: position of the incremental scan over the upload directory, kept in the database so
+-- it resumes after a restart and so only one instance (the one holding the row lock) scans at a time.
+-- shard is '' for the legacy files at the top of the directory, otherwise 'ab/cd'.
+CREATE TABLE image_gc_state
+(
+    id         SMALLINT PRIMARY KEY,
+    shard      VARCHAR(16)                 NOT NULL,
+    last_name  VARCHAR(255)                NOT NULL,
+    updated_at TIMESTAMP WITHOUT TIME ZONE NOT NULL
+);
+
+INSERT INTO image_gc_state (id, shard, last_name, updated_at)
+VALUES (1, '', '', now());
+
+-- The collector asks which of a batch of files are still used by a stock
+CREATE INDEX IF NOT EXISTS idx_stocks_gambar_barang ON stocks (gambar_barang) WHERE gambar_barang IS NOT NULL;
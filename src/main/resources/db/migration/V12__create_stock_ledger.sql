@@ -0,0 +1,82 @@
+-- Append-only ledger of jumlah_stok changes, one row per change written by a trigger in the same transaction,
+-- so imports, coalesced adjustments and bulk deletes are recorded too. Range partitioned by month on
+-- created_at: StockLedgerService creates the partitions ahead of time and can detach old ones.
+CREATE TABLE stock_movements
+(
+    id             BIGSERIAL,
+    stock_id       BIGINT                      NOT NULL,
+    -- opening, created, updated, adjusted or deleted
+    movement_type  VARCHAR(16)                 NOT NULL,
+    delta          INTEGER                     NOT NULL,
+    quantity_after INTEGER                     NOT NULL,
+    created_by     BIGINT,
+    created_at     TIMESTAMP WITHOUT TIME ZONE NOT NULL DEFAULT clock_timestamp(),
+    PRIMARY KEY (id, created_at)
+) PARTITION BY RANGE (created_at);
+
+CREATE INDEX idx_stock_movements_stock_created_at ON stock_movements (stock_id, created_at);
+
+-- Catches rows if the maintenance job ever falls behind, it should stay empty
+CREATE TABLE stock_movements_default PARTITION OF stock_movements DEFAULT;
+
+DO
+$$
+DECLARE
+    month DATE;
+BEGIN
+    FOR i IN 0..3
+        LOOP
+            month := (date_trunc('month', now()) + make_interval(months => i))::DATE;
+            EXECUTE format('CREATE TABLE %I PARTITION OF stock_movements FOR VALUES FROM (%L) TO (%L)',
+                           'stock_movements_' || to_char(month, 'YYYY_MM'), month, (month + INTERVAL '1 month')::DATE);
+        END LOOP;
+END;
+$$;
+
+-- Quantity per stock at snapshot_at, only for stocks that moved since the previous snapshot. "As of T" reads
+-- the latest snapshot at or before T plus the movements after it.
+CREATE TABLE stock_snapshots
+(
+    stock_id    BIGINT                      NOT NULL,
+    snapshot_at TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    quantity    INTEGER                     NOT NULL,
+    PRIMARY KEY (stock_id, snapshot_at)
+);
+
+CREATE TABLE stock_snapshot_runs
+(
+    snapshot_at TIMESTAMP WITHOUT TIME ZONE PRIMARY KEY,
+    stocks      INTEGER                     NOT NULL
+);
+
+CREATE OR REPLACE FUNCTION record_stock_movement() RETURNS TRIGGER AS
+$$
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        INSERT INTO stock_movements (stock_id, movement_type, delta, quantity_after, created_by)
+        VALUES (NEW.id, 'created', NEW.jumlah_stok, NEW.jumlah_stok, NEW.created_by);
+    ELSIF TG_OP = 'UPDATE' THEN
+        IF NEW.jumlah_stok IS DISTINCT FROM OLD.jumlah_stok THEN
+            -- StockRepository.adjustQuantity marks its transaction, everything else is a plain update
+            INSERT INTO stock_movements (stock_id, movement_type, delta, quantity_after, created_by)
+            VALUES (NEW.id, coalesce(nullif(current_setting('app.movement_type', TRUE), ''), 'updated'),
+                    NEW.jumlah_stok - OLD.jumlah_stok, NEW.jumlah_stok, NEW.updated_by);
+        END IF;
+    ELSE
+        INSERT INTO stock_movements (stock_id, movement_type, delta, quantity_after, created_by)
+        VALUES (OLD.id, 'deleted', -OLD.jumlah_stok, 0, NULL);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_stocks_record_movement
+    AFTER INSERT OR UPDATE OR DELETE
+    ON stocks
+    FOR EACH ROW
+EXECUTE FUNCTION record_stock_movement();
+
+-- Stocks that exist before the ledger start from an opening balance
+INSERT INTO stock_movements (stock_id, movement_type, delta, quantity_after, created_by)
+SELECT id, 'opening', jumlah_stok, jumlah_stok, NULL
+FROM stocks;
@@ -0,0 +1,63 @@
+-- Replaces the row-level outbox trigger from V8. The events of a statement are written with one set-based
+-- INSERT from its transition table, and the wake-up NOTIFY has a constant payload, which PostgreSQL delivers
+-- once per transaction however many statements sent it. A bulk delete is one INSERT and one NOTIFY, an import
+-- chunk one NOTIFY; clients still get one event per stock.
+DROP TRIGGER trg_stocks_record_event ON stocks;
+DROP FUNCTION record_stock_event();
+
+CREATE OR REPLACE FUNCTION record_stock_events() RETURNS TRIGGER AS
+$$
+BEGIN
+    IF TG_OP = 'DELETE' THEN
+        INSERT INTO stock_events (stock_id, event_type, payload)
+        SELECT id, 'deleted', jsonb_build_object('id', id, 'gambarBarang', gambar_barang)
+        FROM old_stocks
+        ORDER BY id;
+    ELSE
+        INSERT INTO stock_events (stock_id, event_type, payload)
+        SELECT id,
+               CASE TG_OP WHEN 'INSERT' THEN 'created' ELSE 'updated' END,
+               jsonb_build_object(
+                       'id', id,
+                       'namaBarang', nama_barang,
+                       'jumlahStok', jumlah_stok,
+                       'nomorSeriBarang', nomor_seri_barang,
+                       'additionalInfo', additional_info,
+                       'gambarBarang', gambar_barang,
+                       'createdAt', created_at,
+                       'createdBy', created_by,
+                       'updatedAt', updated_at,
+                       'updatedBy', updated_by)
+        FROM new_stocks
+        ORDER BY id;
+    END IF;
+
+    -- Delivered on commit only, listeners ignore the payload and read the rows themselves
+    IF FOUND THEN
+        PERFORM pg_notify('stock_events', '');
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Transition tables need one trigger per event
+CREATE TRIGGER trg_stocks_record_events_insert
+    AFTER INSERT
+    ON stocks
+    REFERENCING NEW TABLE AS new_stocks
+    FOR EACH STATEMENT
+EXECUTE FUNCTION record_stock_events();
+
+CREATE TRIGGER trg_stocks_record_events_update
+    AFTER UPDATE
+    ON stocks
+    REFERENCING NEW TABLE AS new_stocks
+    FOR EACH STATEMENT
+EXECUTE FUNCTION record_stock_events();
+
+CREATE TRIGGER trg_stocks_record_events_delete
+    AFTER DELETE
+    ON stocks
+    REFERENCING OLD TABLE AS old_stocks
+    FOR EACH STATEMENT
+EXECUTE FUNCTION record_stock_events();
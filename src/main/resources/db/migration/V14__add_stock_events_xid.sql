@@ -0,0 +1,8 @@
+-- Commit-ordered change feed. Event ids come from a sequence at insert time, so a transaction can commit after
+-- higher ids are already visible, and a feed that follows ids either waits on the gap or skips the event for
+-- good. Every event now records its transaction id. Once pg_snapshot_xmin has moved past an xid that
+-- transaction has finished, so no event with a smaller xid can appear any more: the feed is delivered in
+-- (xid, id) order up to that horizon.
+ALTER TABLE stock_events ADD COLUMN xid BIGINT NOT NULL DEFAULT pg_current_xact_id()::text::bigint;
+
+CREATE INDEX idx_stock_events_xid_id ON stock_events (xid, id);
@@ -0,0 +1,9 @@
+-- Keyset pagination on /stocks/list orders by (created_at DESC, id DESC)
+CREATE INDEX IF NOT EXISTS idx_stocks_created_at_id ON stocks (created_at, id);
+
+CREATE INDEX IF NOT EXISTS idx_stocks_created_by_created_at_id ON stocks (created_by, created_at, id);
+
+-- Case-insensitive prefix filter on nama_barang (lower(nama_barang) LIKE 'abc%')
+CREATE INDEX IF NOT EXISTS idx_stocks_nama_barang_prefix ON stocks (lower(nama_barang) text_pattern_ops);
+
+CREATE INDEX IF NOT EXISTS idx_stocks_jumlah_stok ON stocks (jumlah_stok);
@@ -0,0 +1,9 @@
+-- Content-addressed uploads: one row per stored file, shared by every stock that uses it
+CREATE TABLE image_refs
+(
+    hash       VARCHAR(64)                 NOT NULL PRIMARY KEY,
+    path       VARCHAR(255)                NOT NULL UNIQUE,
+    ref_count  INTEGER                     NOT NULL,
+    created_at TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    updated_at TIMESTAMP WITHOUT TIME ZONE NOT NULL
+);
@@ -0,0 +1,5 @@
+ALTER TABLE image_refs ADD COLUMN variants_ready   BOOLEAN NOT NULL DEFAULT FALSE;
+ALTER TABLE image_refs ADD COLUMN variant_attempts INTEGER NOT NULL DEFAULT 0;
+
+-- Backfill sweep only looks at images whose thumbnails are still missing
+CREATE INDEX IF NOT EXISTS idx_image_refs_variants_pending ON image_refs (created_at) WHERE variants_ready = FALSE;
@@ -0,0 +1,3 @@
+-- Attribute filters on /stocks/list (additional_info @> '{...}' and additional_info @@ 'exists(...)').
+-- jsonb_path_ops only supports the containment and jsonpath operators, but is smaller and faster than the default opclass
+CREATE INDEX IF NOT EXISTS idx_stocks_additional_info ON stocks USING GIN (additional_info jsonb_path_ops);
@@ -0,0 +1,52 @@
+-- Change feed outbox: every write to stocks leaves one row here in the same transaction, and a NOTIFY
+-- wakes up the listeners of every instance once it commits. The id doubles as the SSE event id.
+CREATE TABLE stock_events
+(
+    id         BIGSERIAL PRIMARY KEY,
+    stock_id   BIGINT                      NOT NULL,
+    event_type VARCHAR(16)                 NOT NULL,
+    payload    JSONB,
+    created_at TIMESTAMP WITHOUT TIME ZONE NOT NULL DEFAULT clock_timestamp()
+);
+
+-- Retention sweep deletes by age
+CREATE INDEX idx_stock_events_created_at ON stock_events (created_at);
+
+CREATE OR REPLACE FUNCTION record_stock_event() RETURNS TRIGGER AS
+$$
+DECLARE
+    event_id BIGINT;
+BEGIN
+    IF TG_OP = 'DELETE' THEN
+        INSERT INTO stock_events (stock_id, event_type, payload)
+        VALUES (OLD.id, 'deleted', jsonb_build_object('id', OLD.id, 'gambarBarang', OLD.gambar_barang))
+        RETURNING id INTO event_id;
+    ELSE
+        INSERT INTO stock_events (stock_id, event_type, payload)
+        VALUES (NEW.id,
+                CASE TG_OP WHEN 'INSERT' THEN 'created' ELSE 'updated' END,
+                jsonb_build_object(
+                        'id', NEW.id,
+                        'namaBarang', NEW.nama_barang,
+                        'jumlahStok', NEW.jumlah_stok,
+                        'nomorSeriBarang', NEW.nomor_seri_barang,
+                        'additionalInfo', NEW.additional_info,
+                        'gambarBarang', NEW.gambar_barang,
+                        'createdAt', NEW.created_at,
+                        'createdBy', NEW.created_by,
+                        'updatedAt', NEW.updated_at,
+                        'updatedBy', NEW.updated_by))
+        RETURNING id INTO event_id;
+    END IF;
+
+    -- Delivered on commit only, the payload is just a wake-up, listeners read the rows themselves
+    PERFORM pg_notify('stock_events', event_id::text);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_stocks_record_event
+    AFTER INSERT OR UPDATE OR DELETE
+    ON stocks
+    FOR EACH ROW
+EXECUTE FUNCTION record_stock_event();
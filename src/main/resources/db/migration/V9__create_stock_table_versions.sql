@@ -0,0 +1,26 @@
+-- Modification counter for conditional GETs on /stocks/list. The table version is sum(version), bumped once
+-- per statement in the writing transaction, so it becomes visible together with the rows it describes.
+-- Writers are spread over 64 slots by backend pid so concurrent transactions rarely queue on the same row.
+CREATE TABLE stock_table_versions
+(
+    slot    SMALLINT PRIMARY KEY,
+    version BIGINT NOT NULL
+);
+
+INSERT INTO stock_table_versions (slot, version)
+SELECT slot, 0
+FROM generate_series(0, 63) AS slot;
+
+CREATE OR REPLACE FUNCTION bump_stock_table_version() RETURNS TRIGGER AS
+$$
+BEGIN
+    UPDATE stock_table_versions SET version = version + 1 WHERE slot = pg_backend_pid() % 64;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_stocks_bump_version
+    AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE
+    ON stocks
+    FOR EACH STATEMENT
+EXECUTE FUNCTION bump_stock_table_version();
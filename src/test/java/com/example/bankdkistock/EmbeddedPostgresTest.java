@@ -0,0 +1,77 @@
+package com.example.bankdkistock;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.UUID;
+
+/**
+ * Base for tests that need the real schema: one embedded PostgreSQL per test JVM, migrated by Flyway when the
+ * (shared, cached) application context starts. Background jobs that would write on their own are switched off.
+ */
+@SpringBootTest(properties = {
+        "management.server.port=-1",
+        "app.stock.events.enabled=false",
+        "app.stock.ledger.enabled=false",
+        "app.image.gc.enabled=false",
+        // Only runs once at startup, tests drive the cleanup queue themselves
+        "app.image.cleanup.interval-ms=3600000"
+})
+public abstract class EmbeddedPostgresTest {
+
+    private static final EmbeddedPostgres postgres = start();
+
+    @Autowired
+    protected JdbcTemplate jdbcTemplate;
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) throws IOException {
+        registry.add("spring.datasource.url", () -> postgres.getJdbcUrl("postgres", "postgres"));
+        registry.add("spring.datasource.username", () -> "postgres");
+        registry.add("spring.datasource.password", () -> "postgres");
+        registry.add("app.storage.upload-dir", Files.createTempDirectory("test-uploads")::toString);
+    }
+
+    // The user seeded at startup
+    protected long userId() {
+        return jdbcTemplate.queryForObject("SELECT id FROM users ORDER BY id LIMIT 1", Long.class);
+    }
+
+    protected long insertStock(int quantity) {
+        return insertStock(quantity, null);
+    }
+
+    protected long insertStock(int quantity, String gambarBarang) {
+        return jdbcTemplate.queryForObject(
+                "INSERT INTO stocks (nama_barang, jumlah_stok, nomor_seri_barang, gambar_barang, created_at, created_by) " +
+                        "VALUES ('Barang test', ?, ?, ?, now(), ?) RETURNING id",
+                Long.class, quantity, "TEST-" + UUID.randomUUID(), gambarBarang, userId());
+    }
+
+    protected int quantityOf(long stockId) {
+        return jdbcTemplate.queryForObject("SELECT jumlah_stok FROM stocks WHERE id = ?", Integer.class, stockId);
+    }
+
+    private static EmbeddedPostgres start() {
+        try {
+            EmbeddedPostgres started = EmbeddedPostgres.builder().start();
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    started.close();
+                } catch (IOException ignored) {
+                    // JVM is exiting anyway
+                }
+            }));
+            return started;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
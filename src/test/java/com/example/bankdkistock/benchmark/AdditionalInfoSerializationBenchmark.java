@@ -0,0 +1,98 @@
+package com.example.bankdkistock.benchmark;
+
+import com.example.bankdkistock.dto.ApiResponse;
+import com.example.bankdkistock.dto.CursorPageDTO;
+import com.example.bankdkistock.dto.ResponseStockDTO;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serializes a page of /stocks/list, once parsing every additional_info into a tree first (the old
+ * convertToDTO path) and once writing the stored jsonb text straight through as a raw value.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AdditionalInfoSerializationBenchmark {
+
+    @Param({"50", "500"})
+    private int pageSize;
+
+    private ObjectMapper objectMapper;
+    private List<ResponseStockDTO> rows;
+
+    @Setup
+    public void setup() {
+        objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+        rows = new ArrayList<>(pageSize);
+        for (int i = 0; i < pageSize; i++) {
+            String additionalInfo = "{\"warna\":\"hitam\",\"berat\":" + (i % 40) + ".5,\"garansi\":{\"bulan\":12,"
+                    + "\"vendor\":\"PT Sumber Makmur\"},\"tags\":[\"elektronik\",\"kantor\",\"gudang-" + (i % 7) + "\"]}";
+            rows.add(ResponseStockDTO.builder()
+                    .id((long) i)
+                    .namaBarang("Barang " + i)
+                    .jumlahStok(i * 3)
+                    .nomorSeriBarang("SN-" + i)
+                    .additionalInfo(additionalInfo)
+                    .gambarBarang("/uploads/ab/cd/" + i + ".jpg")
+                    .createdAt(LocalDateTime.of(2024, 1, 1, 0, 0).plusMinutes(i))
+                    .createdBy(1L)
+                    .build());
+        }
+    }
+
+    @Benchmark
+    public byte[] treeParsed() throws Exception {
+        List<TreeStockDTO> items = new ArrayList<>(rows.size());
+        for (ResponseStockDTO row : rows) {
+            items.add(new TreeStockDTO(row, objectMapper.readTree(row.getAdditionalInfo())));
+        }
+        return objectMapper.writeValueAsBytes(new ApiResponse<>("OK", "Success",
+                CursorPageDTO.<TreeStockDTO>builder().items(items).limit(pageSize).build()));
+    }
+
+    @Benchmark
+    public byte[] rawPassThrough() throws Exception {
+        return objectMapper.writeValueAsBytes(new ApiResponse<>("OK", "Success",
+                CursorPageDTO.<ResponseStockDTO>builder().items(rows).limit(pageSize).build()));
+    }
+
+    // Same shape as ResponseStockDTO before additional_info became a raw value
+    public record TreeStockDTO(Long id, String namaBarang, Integer jumlahStok, String nomorSeriBarang,
+                               JsonNode additionalInfo, String gambarBarang, LocalDateTime createdAt, Long createdBy) {
+
+        TreeStockDTO(ResponseStockDTO row, JsonNode additionalInfo) {
+            this(row.getId(), row.getNamaBarang(), row.getJumlahStok(), row.getNomorSeriBarang(), additionalInfo,
+                    row.getGambarBarang(), row.getCreatedAt(), row.getCreatedBy());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(AdditionalInfoSerializationBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.bankdkistock.benchmark;
+
+import com.example.bankdkistock.model.Stock;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Stock rows shaped like production data, shared by the benchmarks
+final class BenchmarkData {
+
+    private BenchmarkData() {
+    }
+
+    static String additionalInfo(int index, String size) {
+        return switch (size) {
+            case "none" -> null;
+            case "small" -> "{\"warna\":\"hitam\",\"berat\":" + (index % 40) + ".5}";
+            default -> {
+                StringBuilder json = new StringBuilder("{\"warna\":\"hitam\",\"berat\":").append(index % 40).append(".5,")
+                        .append("\"garansi\":{\"bulan\":12,\"vendor\":\"PT Sumber Makmur\",\"kontak\":\"+62 21 555 0101\"},")
+                        .append("\"dimensi\":{\"panjang\":120,\"lebar\":60,\"tinggi\":75,\"satuan\":\"cm\"},")
+                        .append("\"tags\":[\"elektronik\",\"kantor\",\"gudang-").append(index % 7).append("\"],")
+                        .append("\"riwayat\":[");
+                for (int i = 0; i < 8; i++) {
+                    if (i > 0) json.append(',');
+                    json.append("{\"tanggal\":\"2024-0").append(i + 1).append("-15\",\"lokasi\":\"Gudang ")
+                            .append((char) ('A' + i)).append("\",\"catatan\":\"Pemeriksaan rutin tanpa temuan\"}");
+                }
+                yield json.append("]}").toString();
+            }
+        };
+    }
+
+    static List<Stock> stocks(int count, String additionalInfoSize) {
+        List<Stock> stocks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            stocks.add(Stock.builder()
+                    .id(100_000L + i)
+                    .namaBarang("Meja Kerja Kayu Jati " + i)
+                    .jumlahStok(i * 3)
+                    .nomorSeriBarang("SN-2024-" + String.format("%06d", i))
+                    .additionalInfo(additionalInfo(i, additionalInfoSize))
+                    .gambarBarang("/uploads/ab/cd/abcd" + String.format("%060d", i) + ".jpg")
+                    .createdAt(LocalDateTime.of(2024, 1, 1, 8, 0).plusMinutes(i))
+                    .createdBy(1L)
+                    .updatedAt(i % 2 == 0 ? LocalDateTime.of(2024, 6, 1, 8, 0).plusMinutes(i) : null)
+                    .updatedBy(i % 2 == 0 ? 2L : null)
+                    .build());
+        }
+        return stocks;
+    }
+}
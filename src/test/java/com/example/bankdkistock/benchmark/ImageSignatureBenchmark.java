@@ -0,0 +1,50 @@
+package com.example.bankdkistock.benchmark;
+
+import com.example.bankdkistock.service.ImageStorageService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ImageSignatureBenchmark {
+
+    private byte[] jpegHeader;
+    private byte[] pngHeader;
+    private byte[] invalidHeader;
+
+    @Setup
+    public void setup() {
+        jpegHeader = new byte[]{(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0, 0x00, 0x10, 0x4A, 0x46};
+        pngHeader = new byte[]{(byte) 0x89, 0x50, 0x4E, 0x47, 0x0D, 0x0A, 0x1A, 0x0A};
+        invalidHeader = new byte[]{0x25, 0x50, 0x44, 0x46, 0x2D, 0x31, 0x2E, 0x37};
+    }
+
+    @Benchmark
+    public boolean jpeg() {
+        return ImageStorageService.isValidImageSignature(jpegHeader, jpegHeader.length);
+    }
+
+    @Benchmark
+    public boolean png() {
+        return ImageStorageService.isValidImageSignature(pngHeader, pngHeader.length);
+    }
+
+    @Benchmark
+    public boolean invalid() {
+        return ImageStorageService.isValidImageSignature(invalidHeader, invalidHeader.length);
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.bankdkistock.benchmark;
+
+import com.example.bankdkistock.security.AuthenticatedUser;
+import com.example.bankdkistock.security.JwtUtil;
+import com.example.bankdkistock.util.CacheStatsRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token checks done by JwtRequestFilter on every authenticated request, with the verified-token cache warm
+ * (the steady state) and effectively disabled (first request per token, full HS256 verification).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtUtilBenchmark {
+
+    private JwtUtil cachedJwtUtil;
+    private JwtUtil uncachedJwtUtil;
+    private AuthenticatedUser user;
+    private String token;
+
+    @Setup
+    public void setup() {
+        cachedJwtUtil = new JwtUtil(new CacheStatsRegistry(), new SimpleMeterRegistry(), 10_000);
+        uncachedJwtUtil = new JwtUtil(new CacheStatsRegistry(), new SimpleMeterRegistry(), 0);
+
+        List<GrantedAuthority> authorities = List.of(new SimpleGrantedAuthority("ROLE_USER"));
+        user = new AuthenticatedUser(1L, "admin", "password", authorities);
+        token = cachedJwtUtil.generateToken(user);
+        cachedJwtUtil.extractAllClaims(token);
+    }
+
+    @Benchmark
+    public String extractUsernameCached() {
+        return cachedJwtUtil.extractUsername(token);
+    }
+
+    @Benchmark
+    public Boolean validateTokenCached() {
+        return cachedJwtUtil.validateToken(token, user);
+    }
+
+    @Benchmark
+    public String extractUsernameUncached() {
+        return uncachedJwtUtil.extractUsername(token);
+    }
+
+    @Benchmark
+    public Boolean validateTokenUncached() {
+        return uncachedJwtUtil.validateToken(token, user);
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.bankdkistock.benchmark;
+
+import com.example.bankdkistock.config.HttpLoggingProperties;
+import com.example.bankdkistock.filter.LoggingFilter;
+import jakarta.servlet.FilterChain;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.config.Configurator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LoggingFilter around a handler that writes a small or large body, with the response body sampled (tee through
+ * ResponseWrapper) or not. The logger itself is switched off so the numbers cover the filter and wrapper on the
+ * request thread, the appenders already run on the async logger thread in production.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoggingFilterBenchmark {
+
+    @Param({"512", "1048576"})
+    private int bodyBytes;
+
+    @Param({"true", "false"})
+    private boolean sampled;
+
+    private LoggingFilter filter;
+    private FilterChain chain;
+
+    @Setup
+    public void setup() {
+        Configurator.setLevel(LoggingFilter.class.getName(), Level.OFF);
+
+        HttpLoggingProperties properties = new HttpLoggingProperties();
+        properties.setSampleRate(sampled ? 1.0 : 0.0);
+        filter = new LoggingFilter(properties);
+
+        byte[] body = new byte[bodyBytes];
+        Arrays.fill(body, (byte) 'a');
+        chain = (request, response) -> response.getOutputStream().write(body);
+    }
+
+    @Benchmark
+    public MockHttpServletResponse doFilter() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/stocks/list");
+        request.addParameter("limit", "50");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.bankdkistock.benchmark;
+
+import com.example.bankdkistock.dto.ApiResponse;
+import com.example.bankdkistock.dto.CursorPageDTO;
+import com.example.bankdkistock.dto.ResponseStockDTO;
+import com.example.bankdkistock.service.StockService;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serialization time of a /stocks/list page per negotiated format (JSON, Smile, CBOR), with and without gzip
+ * at the level Tomcat's compression uses. {@code mvn -Pjmh verify -DskipTests -Djmh.include=ResponseFormatBenchmark}
+ * runs the timings only; running {@code main} also prints the payload size of every combination first.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResponseFormatBenchmark {
+
+    private static final String[] FORMATS = {"json", "smile", "cbor"};
+    private static final int[] ROWS = {50, 500};
+    private static final String[] ADDITIONAL_INFO = {"none", "small", "large"};
+
+    @Param({"json", "smile", "cbor"})
+    private String format;
+
+    @Param({"50", "500"})
+    private int rows;
+
+    @Param({"small", "large"})
+    private String additionalInfo;
+
+    private ObjectMapper objectMapper;
+    private ApiResponse<CursorPageDTO<ResponseStockDTO>> response;
+
+    @Setup
+    public void setup() {
+        objectMapper = mapper(format);
+        response = page(rows, additionalInfo);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return objectMapper.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public byte[] serializeGzip() throws IOException {
+        return gzip(objectMapper.writeValueAsBytes(response));
+    }
+
+    static ObjectMapper mapper(String format) {
+        JsonFactory factory = switch (format) {
+            case "smile" -> new SmileFactory();
+            case "cbor" -> new CBORFactory();
+            default -> new JsonFactory();
+        };
+        return Jackson2ObjectMapperBuilder.json().factory(factory).build();
+    }
+
+    static ApiResponse<CursorPageDTO<ResponseStockDTO>> page(int rows, String additionalInfo) {
+        return new ApiResponse<>("success", "Stocks retrieved successfully", CursorPageDTO.<ResponseStockDTO>builder()
+                .items(BenchmarkData.stocks(rows, additionalInfo).stream().map(StockService::convertToDTO).toList())
+                .nextCursor("MjAyNC0wMS0wMVQwMDowMDowMHwxMjM0NQ")
+                .limit(rows)
+                .build());
+    }
+
+    static byte[] gzip(byte[] payload) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(payload.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(payload);
+        }
+        return compressed.toByteArray();
+    }
+
+    public static void main(String[] args) throws Exception {
+        System.out.printf("%-6s %6s %-6s %12s %12s %8s%n", "format", "rows", "info", "bytes", "gzip bytes", "vs json");
+        for (int rows : ROWS) {
+            for (String additionalInfo : ADDITIONAL_INFO) {
+                int jsonBytes = 0;
+                for (String format : FORMATS) {
+                    byte[] payload = mapper(format).writeValueAsBytes(page(rows, additionalInfo));
+                    if ("json".equals(format)) jsonBytes = payload.length;
+                    System.out.printf("%-6s %6d %-6s %12d %12d %7.0f%%%n", format, rows, additionalInfo,
+                            payload.length, gzip(payload).length, 100.0 * payload.length / jsonBytes);
+                }
+            }
+        }
+
+        new Runner(new OptionsBuilder()
+                .include(ResponseFormatBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
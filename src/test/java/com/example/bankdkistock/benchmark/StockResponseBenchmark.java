@@ -0,0 +1,69 @@
+package com.example.bankdkistock.benchmark;
+
+import com.example.bankdkistock.dto.ApiResponse;
+import com.example.bankdkistock.dto.ResponseStockDTO;
+import com.example.bankdkistock.model.Stock;
+import com.example.bankdkistock.service.StockService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapping stock rows to ResponseStockDTO and serializing {@code ApiResponse<List<ResponseStockDTO>>} with an
+ * ObjectMapper configured the way Spring Boot configures the one used by the message converters.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StockResponseBenchmark {
+
+    @Param({"1", "50", "500"})
+    private int rows;
+
+    @Param({"none", "small", "large"})
+    private String additionalInfo;
+
+    private ObjectMapper objectMapper;
+    private List<Stock> stocks;
+    private ApiResponse<List<ResponseStockDTO>> response;
+
+    @Setup
+    public void setup() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        stocks = BenchmarkData.stocks(rows, additionalInfo);
+        response = new ApiResponse<>("success", "Stocks retrieved successfully",
+                stocks.stream().map(StockService::convertToDTO).toList());
+    }
+
+    @Benchmark
+    public List<ResponseStockDTO> convertToDTO() {
+        return stocks.stream().map(StockService::convertToDTO).toList();
+    }
+
+    @Benchmark
+    public byte[] serializeResponse() throws Exception {
+        return objectMapper.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public byte[] convertAndSerialize() throws Exception {
+        return objectMapper.writeValueAsBytes(new ApiResponse<>("success", "Stocks retrieved successfully",
+                stocks.stream().map(StockService::convertToDTO).toList()));
+    }
+}
@@ -0,0 +1,309 @@
+package com.example.bankdkistock.loadtest;
+
+import com.example.bankdkistock.BankDkiStockApplication;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Self-contained end-to-end load test: starts an embedded PostgreSQL, boots the application against it on a
+ * random port, seeds stocks and drives an open-loop request mix with JWT auth. Requests are issued on a fixed
+ * arrival schedule whether or not earlier ones have finished, and latency is measured from the scheduled send
+ * time, so a stalled server shows up in the percentiles instead of silently lowering the offered load.
+ * <p>
+ * Run with {@code mvn -Ploadtest verify -DskipTests}, settings are system properties:
+ * <ul>
+ *     <li>{@code loadtest.rate} requests per second (200)</li>
+ *     <li>{@code loadtest.duration} / {@code loadtest.warmup} seconds (60 / 10)</li>
+ *     <li>{@code loadtest.seed} stocks inserted before the run (10000)</li>
+ *     <li>{@code loadtest.mix} endpoint weights ("login=2,create=8,list=35,detail=45,update=10")</li>
+ *     <li>{@code loadtest.max-in-flight} requests allowed outstanding before new ones are dropped (5000)</li>
+ *     <li>{@code loadtest.result} JSON report path (target/loadtest-result.json)</li>
+ * </ul>
+ */
+public class LoadTestHarness {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private static final String USERNAME = "admin";
+    private static final String PASSWORD = "password";
+
+    enum Endpoint { LOGIN, CREATE, LIST, DETAIL, UPDATE }
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+
+    private final String baseUrl;
+    private final List<Long> stockIds;
+    private final AtomicLong createSequence = new AtomicLong();
+    private String token;
+
+    LoadTestHarness(String baseUrl, List<Long> stockIds) {
+        this.baseUrl = baseUrl;
+        this.stockIds = stockIds;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int rate = Integer.getInteger("loadtest.rate", 200);
+        int durationSeconds = Integer.getInteger("loadtest.duration", 60);
+        int warmupSeconds = Integer.getInteger("loadtest.warmup", 10);
+        int seedRows = Integer.getInteger("loadtest.seed", 10_000);
+        int maxInFlight = Integer.getInteger("loadtest.max-in-flight", 5000);
+        Map<Endpoint, Integer> mix = parseMix(System.getProperty("loadtest.mix", "login=2,create=8,list=35,detail=45,update=10"));
+        Path resultFile = Path.of(System.getProperty("loadtest.result", "target/loadtest-result.json"));
+
+        Path uploadDir = Files.createTempDirectory("loadtest-uploads");
+        try (EmbeddedPostgres postgres = EmbeddedPostgres.builder().start();
+             ConfigurableApplicationContext context = boot(postgres, uploadDir)) {
+
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            List<Long> stockIds = seed(context.getBean(JdbcTemplate.class), seedRows);
+
+            LoadTestHarness harness = new LoadTestHarness("http://localhost:" + port, stockIds);
+            harness.token = harness.login();
+
+            System.out.printf("Warming up for %ds at %d req/s%n", warmupSeconds, rate);
+            harness.run(rate, warmupSeconds, maxInFlight, mix);
+
+            System.out.printf("Measuring for %ds at %d req/s%n", durationSeconds, rate);
+            Map<Endpoint, Recorder> results = harness.run(rate, durationSeconds, maxInFlight, mix);
+            report(results, durationSeconds, resultFile);
+        }
+    }
+
+    private static ConfigurableApplicationContext boot(EmbeddedPostgres postgres, Path uploadDir) {
+        SpringApplication application = new SpringApplication(BankDkiStockApplication.class);
+        application.setDefaultProperties(Map.of(
+                "spring.datasource.url", postgres.getJdbcUrl("postgres", "postgres"),
+                "spring.datasource.username", "postgres",
+                "spring.datasource.password", "postgres",
+                "server.port", "0",
+                "app.storage.upload-dir", uploadDir.toString(),
+                "app.logging.http.sample-rate", "0.0",
+                "logging.level.com.example.bankdkistock.filter.LoggingFilter", "warn"
+        ));
+        return application.run();
+    }
+
+    private static List<Long> seed(JdbcTemplate jdbcTemplate, int rows) {
+        Long userId = jdbcTemplate.queryForObject("SELECT id FROM users WHERE username = ?", Long.class, USERNAME);
+        jdbcTemplate.update("INSERT INTO stocks (nama_barang, jumlah_stok, nomor_seri_barang, additional_info, created_at, created_by) " +
+                "SELECT 'Barang ' || g, g % 500, 'LT-SEED-' || g, " +
+                "jsonb_build_object('warna', (ARRAY['merah','hitam','putih'])[g % 3 + 1], 'berat', g % 40, 'garansi', jsonb_build_object('bulan', 12)), " +
+                "now() - g * interval '1 second', ? FROM generate_series(1, ?) g", userId, rows);
+        return jdbcTemplate.queryForList("SELECT id FROM stocks ORDER BY id", Long.class);
+    }
+
+    Map<Endpoint, Recorder> run(int rate, int seconds, int maxInFlight, Map<Endpoint, Integer> mix) throws InterruptedException {
+        Map<Endpoint, Recorder> recorders = new EnumMap<>(Endpoint.class);
+        mix.keySet().forEach(endpoint -> recorders.put(endpoint, new Recorder()));
+        Endpoint[] schedule = weightedSchedule(mix);
+
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        long total = (long) rate * seconds;
+        AtomicInteger inFlight = new AtomicInteger();
+
+        try (ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor()) {
+            long start = System.nanoTime();
+            for (long i = 0; i < total; i++) {
+                long intended = start + i * intervalNanos;
+                long wait = intended - System.nanoTime();
+                if (wait > 0) LockSupport.parkNanos(wait);
+
+                Endpoint endpoint = schedule[ThreadLocalRandom.current().nextInt(schedule.length)];
+                Recorder recorder = recorders.get(endpoint);
+                if (inFlight.incrementAndGet() > maxInFlight) {
+                    inFlight.decrementAndGet();
+                    recorder.dropped.incrementAndGet();
+                    continue;
+                }
+
+                senders.submit(() -> {
+                    try {
+                        int status = send(endpoint);
+                        recorder.record(System.nanoTime() - intended, status < 400);
+                    } catch (Exception e) {
+                        recorder.record(System.nanoTime() - intended, false);
+                    } finally {
+                        inFlight.decrementAndGet();
+                    }
+                });
+            }
+        }
+
+        return recorders;
+    }
+
+    private int send(Endpoint endpoint) throws IOException, InterruptedException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        HttpRequest request = switch (endpoint) {
+            case LOGIN -> form("/auth/login", "POST", Map.of("username", USERNAME, "password", PASSWORD), false);
+            case CREATE -> {
+                long sequence = createSequence.incrementAndGet();
+                yield form("/stocks/create", "POST", stockForm("Barang Baru " + sequence, "LT-NEW-" + sequence + "-" + random.nextInt(1_000_000)), true);
+            }
+            case LIST -> get("/stocks/list?limit=50");
+            case DETAIL -> get("/stocks/detail/" + randomStockId());
+            case UPDATE -> {
+                long id = randomStockId();
+                yield form("/stocks/update/" + id, "PUT", stockForm("Barang " + id, "LT-UPDATED-" + id), true);
+            }
+        };
+
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private Map<String, String> stockForm(String namaBarang, String nomorSeriBarang) {
+        Map<String, String> form = new LinkedHashMap<>();
+        form.put("namaBarang", namaBarang);
+        form.put("jumlahStok", String.valueOf(ThreadLocalRandom.current().nextInt(1, 1000)));
+        form.put("nomorSeriBarang", nomorSeriBarang);
+        form.put("additionalInfo", "{\"warna\":\"hitam\",\"garansi\":{\"bulan\":12}}");
+        return form;
+    }
+
+    private long randomStockId() {
+        return stockIds.get(ThreadLocalRandom.current().nextInt(stockIds.size()));
+    }
+
+    private String login() throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(form("/auth/login", "POST",
+                Map.of("username", USERNAME, "password", PASSWORD), false), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Login failed: HTTP " + response.statusCode());
+        }
+        return objectMapper.readTree(response.body()).path("data").asText();
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Authorization", "Bearer " + token)
+                .timeout(Duration.ofSeconds(30))
+                .GET()
+                .build();
+    }
+
+    private HttpRequest form(String path, String method, Map<String, String> fields, boolean authenticated) {
+        StringBuilder body = new StringBuilder();
+        fields.forEach((name, value) -> {
+            if (!body.isEmpty()) body.append('&');
+            body.append(URLEncoder.encode(name, StandardCharsets.UTF_8)).append('=').append(URLEncoder.encode(value, StandardCharsets.UTF_8));
+        });
+
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .timeout(Duration.ofSeconds(30))
+                .method(method, HttpRequest.BodyPublishers.ofString(body.toString()));
+        if (authenticated) builder.header("Authorization", "Bearer " + token);
+        return builder.build();
+    }
+
+    private static Map<Endpoint, Integer> parseMix(String mix) {
+        Map<Endpoint, Integer> weights = new EnumMap<>(Endpoint.class);
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split("=");
+            int weight = Integer.parseInt(parts[1].trim());
+            if (weight > 0) weights.put(Endpoint.valueOf(parts[0].trim().toUpperCase()), weight);
+        }
+        if (weights.isEmpty()) throw new IllegalArgumentException("loadtest.mix has no endpoint with a positive weight");
+        return weights;
+    }
+
+    private static Endpoint[] weightedSchedule(Map<Endpoint, Integer> mix) {
+        List<Endpoint> schedule = new ArrayList<>();
+        mix.forEach((endpoint, weight) -> {
+            for (int i = 0; i < weight; i++) schedule.add(endpoint);
+        });
+        return schedule.toArray(Endpoint[]::new);
+    }
+
+    private static void report(Map<Endpoint, Recorder> results, int durationSeconds, Path resultFile) throws IOException {
+        System.out.printf("%n%-8s %9s %9s %9s %9s %9s %9s %9s %9s %8s%n",
+                "endpoint", "count", "req/s", "p50 ms", "p95 ms", "p99 ms", "p999 ms", "max ms", "errors", "err %");
+
+        Map<String, Object> json = new LinkedHashMap<>();
+        results.forEach((endpoint, recorder) -> {
+            long[] latencies = recorder.sortedLatencies();
+            long failures = recorder.errors.get() + recorder.dropped.get();
+            long attempts = latencies.length + recorder.dropped.get();
+            double errorRate = attempts == 0 ? 0 : 100.0 * failures / attempts;
+            double throughput = (double) latencies.length / durationSeconds;
+
+            System.out.printf("%-8s %9d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f %9d %7.2f%%%n", endpoint.name().toLowerCase(),
+                    latencies.length, throughput, percentile(latencies, 50), percentile(latencies, 95),
+                    percentile(latencies, 99), percentile(latencies, 99.9), percentile(latencies, 100), failures, errorRate);
+
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("count", latencies.length);
+            row.put("throughput", throughput);
+            row.put("p50Ms", percentile(latencies, 50));
+            row.put("p95Ms", percentile(latencies, 95));
+            row.put("p99Ms", percentile(latencies, 99));
+            row.put("p999Ms", percentile(latencies, 99.9));
+            row.put("maxMs", percentile(latencies, 100));
+            row.put("errors", recorder.errors.get());
+            row.put("dropped", recorder.dropped.get());
+            row.put("errorRatePercent", errorRate);
+            json.put(endpoint.name().toLowerCase(), row);
+        });
+
+        Files.createDirectories(resultFile.toAbsolutePath().getParent());
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(resultFile.toFile(), json);
+        System.out.println("\nResults written to " + resultFile.toAbsolutePath());
+    }
+
+    private static double percentile(long[] sortedNanos, double percentile) {
+        if (sortedNanos.length == 0) return 0;
+        int index = (int) Math.ceil(percentile / 100.0 * sortedNanos.length) - 1;
+        return sortedNanos[Math.max(0, Math.min(index, sortedNanos.length - 1))] / 1_000_000.0;
+    }
+
+    static class Recorder {
+        private final Queue<Long> latencies = new ConcurrentLinkedQueue<>();
+        private final AtomicLong errors = new AtomicLong();
+        private final AtomicLong dropped = new AtomicLong();
+
+        void record(long latencyNanos, boolean success) {
+            latencies.add(latencyNanos);
+            if (!success) errors.incrementAndGet();
+        }
+
+        long[] sortedLatencies() {
+            long[] sorted = latencies.stream().mapToLong(Long::longValue).toArray();
+            Arrays.sort(sorted);
+            return sorted;
+        }
+    }
+}
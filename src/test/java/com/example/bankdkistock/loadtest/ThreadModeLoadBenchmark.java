@@ -0,0 +1,173 @@
+package com.example.bankdkistock.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Closed-loop comparison of the platform-thread and virtual-thread modes. Start the application twice against
+ * the same database, once with {@code spring.threads.virtual.enabled=false} and once with {@code true} on
+ * another port, then run for example:
+ * <pre>
+ * java ... ThreadModeLoadBenchmark platform=http://localhost:8080 virtual=http://localhost:8081
+ * </pre>
+ * Each target gets the same request mix (list page, stock detail, autocomplete) from {@code -Dconcurrency}
+ * callers for {@code -Dduration} seconds after {@code -Dwarmup} seconds, and the results are printed side by side.
+ */
+public class ThreadModeLoadBenchmark {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.err.println("Usage: ThreadModeLoadBenchmark <label>=<base-url> [<label>=<base-url> ...]");
+            System.exit(1);
+        }
+
+        int concurrency = Integer.getInteger("concurrency", 200);
+        int warmupSeconds = Integer.getInteger("warmup", 5);
+        int durationSeconds = Integer.getInteger("duration", 30);
+        String username = System.getProperty("username", "admin");
+        String password = System.getProperty("password", "password");
+
+        Map<String, Result> results = new LinkedHashMap<>();
+        for (String arg : args) {
+            String[] target = arg.split("=", 2);
+            String baseUrl = target[1].endsWith("/") ? target[1].substring(0, target[1].length() - 1) : target[1];
+
+            HttpClient client = HttpClient.newBuilder()
+                    .connectTimeout(Duration.ofSeconds(5))
+                    .executor(Executors.newVirtualThreadPerTaskExecutor())
+                    .build();
+            String token = login(client, baseUrl, username, password);
+            List<Long> ids = sampleIds(client, baseUrl, token);
+
+            run(client, baseUrl, token, ids, concurrency, warmupSeconds);
+            results.put(target[0], run(client, baseUrl, token, ids, concurrency, durationSeconds));
+        }
+
+        System.out.printf("%n%-12s %12s %10s %10s %10s %10s %8s%n", "mode", "req/s", "p50 ms", "p90 ms", "p99 ms", "max ms", "errors");
+        results.forEach((label, result) -> System.out.printf("%-12s %12.1f %10.2f %10.2f %10.2f %10.2f %8d%n",
+                label, result.throughput, result.percentile(50), result.percentile(90), result.percentile(99),
+                result.percentile(100), result.errors));
+    }
+
+    private static Result run(HttpClient client, String baseUrl, String token, List<Long> ids,
+                              int concurrency, int seconds) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(seconds).toNanos();
+        Queue<long[]> latencies = new ConcurrentLinkedQueue<>();
+        AtomicLong errors = new AtomicLong();
+
+        long start = System.nanoTime();
+        try (ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < concurrency; i++) {
+                LatencyBuffer buffer = new LatencyBuffer();
+                callers.submit(() -> {
+                    while (System.nanoTime() < deadline) {
+                        HttpRequest request = nextRequest(baseUrl, token, ids);
+                        long sent = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() >= 400) errors.incrementAndGet();
+                        } catch (Exception e) {
+                            errors.incrementAndGet();
+                        }
+                        buffer.add(System.nanoTime() - sent);
+                    }
+                    latencies.add(buffer.toArray());
+                });
+            }
+        }
+        double elapsedSeconds = (System.nanoTime() - start) / 1_000_000_000.0;
+
+        long[] all = latencies.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+        return new Result(all, all.length / elapsedSeconds, errors.get());
+    }
+
+    private static HttpRequest nextRequest(String baseUrl, String token, List<Long> ids) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int pick = random.nextInt(10);
+        String path;
+        if (pick < 3 || ids.isEmpty()) {
+            path = "/stocks/list?limit=50";
+        } else if (pick < 8) {
+            path = "/stocks/detail/" + ids.get(random.nextInt(ids.size()));
+        } else {
+            path = "/stocks/autocomplete?q=" + (char) ('a' + random.nextInt(26));
+        }
+
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Authorization", "Bearer " + token)
+                .timeout(Duration.ofSeconds(30))
+                .GET()
+                .build();
+    }
+
+    private static String login(HttpClient client, String baseUrl, String username, String password) throws Exception {
+        String form = "username=" + URLEncoder.encode(username, StandardCharsets.UTF_8)
+                + "&password=" + URLEncoder.encode(password, StandardCharsets.UTF_8);
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/auth/login"))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(form))
+                .build(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Login failed on " + baseUrl + ": HTTP " + response.statusCode());
+        }
+        return objectMapper.readTree(response.body()).path("data").asText();
+    }
+
+    private static List<Long> sampleIds(HttpClient client, String baseUrl, String token) throws Exception {
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/stocks/list?limit=500"))
+                .header("Authorization", "Bearer " + token)
+                .GET()
+                .build(), HttpResponse.BodyHandlers.ofString());
+
+        List<Long> ids = new ArrayList<>();
+        for (JsonNode item : objectMapper.readTree(response.body()).path("data").path("items")) {
+            ids.add(item.path("id").asLong());
+        }
+        return ids;
+    }
+
+    // Per-caller buffer so recording a latency never contends with other callers
+    private static class LatencyBuffer {
+        private long[] values = new long[4096];
+        private int size;
+
+        void add(long value) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    private record Result(long[] sortedNanos, double throughput, long errors) {
+
+        double percentile(double percentile) {
+            if (sortedNanos.length == 0) return 0;
+            int index = (int) Math.ceil(percentile / 100.0 * sortedNanos.length) - 1;
+            return sortedNanos[Math.max(0, Math.min(index, sortedNanos.length - 1))] / 1_000_000.0;
+        }
+    }
+}
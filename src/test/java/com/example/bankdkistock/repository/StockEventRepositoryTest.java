@@ -0,0 +1,100 @@
+package com.example.bankdkistock.repository;
+
+import com.example.bankdkistock.EmbeddedPostgresTest;
+import com.example.bankdkistock.dto.StockEventDTO;
+import com.example.bankdkistock.model.StockEventPosition;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StockEventRepositoryTest extends EmbeddedPostgresTest {
+
+    @Autowired
+    private StockEventRepository stockEventRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    void lowerIdCommittedLastIsDeliveredAfterItCommits() throws SQLException {
+        StockEventPosition start = stockEventRepository.latestPosition();
+
+        try (Connection first = open(); Connection second = open()) {
+            long early = insert(first);
+            long late = insert(second);
+            second.commit();
+
+            // The earlier insert is still running, the later commit has to wait behind it instead of
+            // moving the feed past its id
+            assertThat(stockIds(start)).isEmpty();
+
+            first.commit();
+            assertThat(stockIds(start)).containsExactly(early, late);
+        }
+    }
+
+    @Test
+    void transactionThatBeganWritingFirstIsDeliveredFirst() throws SQLException {
+        StockEventPosition start = stockEventRepository.latestPosition();
+
+        try (Connection first = open(); Connection second = open()) {
+            // Takes its transaction id before the other one, but its event id after
+            try (Statement statement = first.createStatement()) {
+                statement.execute("SELECT pg_current_xact_id()");
+            }
+            long lowerId = insert(second);
+            long higherId = insert(first);
+            first.commit();
+
+            assertThat(stockIds(start)).containsExactly(higherId);
+
+            second.commit();
+            assertThat(stockIds(start)).containsExactly(higherId, lowerId);
+        }
+    }
+
+    @Test
+    void resumesFromThePositionOfAKnownEvent() {
+        insertStock(1);
+        StockEventPosition position = stockEventRepository.latestPosition();
+
+        assertThat(stockEventRepository.findPosition(position.getId())).contains(position);
+        assertThat(stockEventRepository.findAfter(position, StockEventPosition.END, 10)).isEmpty();
+        assertThat(stockEventRepository.findPosition(-1)).isEmpty();
+    }
+
+    private Connection open() throws SQLException {
+        Connection connection = dataSource.getConnection();
+        connection.setAutoCommit(false);
+        return connection;
+    }
+
+    private long insert(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "INSERT INTO stocks (nama_barang, jumlah_stok, nomor_seri_barang, created_at, created_by) " +
+                        "VALUES ('Barang test', 1, ?, now(), ?) RETURNING id")) {
+            statement.setString(1, "TEST-" + UUID.randomUUID());
+            statement.setLong(2, userId());
+            try (ResultSet rs = statement.executeQuery()) {
+                rs.next();
+                return rs.getLong(1);
+            }
+        }
+    }
+
+    private List<Long> stockIds(StockEventPosition after) {
+        return stockEventRepository.findAfter(after, StockEventPosition.END, 100).stream()
+                .map(StockEventDTO::getStockId)
+                .toList();
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.bankdkistock.repository;
+
+import com.example.bankdkistock.EmbeddedPostgresTest;
+import com.example.bankdkistock.dto.StockQuantityAsOfDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StockLedgerRepositoryTest extends EmbeddedPostgresTest {
+
+    @Autowired
+    private StockLedgerRepository stockLedgerRepository;
+
+    @Autowired
+    private StockRepository stockRepository;
+
+    @Test
+    void quantityAsOfMatchesReplayAcrossSnapshots() {
+        LocalDateTime beforeCreate = databaseNow();
+        long stockId = insertStock(10);
+        long untouchedId = insertStock(3);
+        adjust(stockId, 5);
+        adjust(stockId, -3);
+
+        LocalDateTime firstSnapshot = databaseNow();
+        snapshot(firstSnapshot);
+
+        adjust(stockId, -2);
+        LocalDateTime between = databaseNow();
+        adjust(stockId, 7);
+        LocalDateTime afterAdjustments = databaseNow();
+
+        assertThat(stockLedgerRepository.quantityAsOf(stockId, beforeCreate)).isEmpty();
+        assertAsOf(stockId, firstSnapshot, 12, firstSnapshot, 0);
+        assertAsOf(stockId, between, 10, firstSnapshot, 1);
+        assertAsOf(stockId, afterAdjustments, 17, firstSnapshot, 2);
+
+        // The second snapshot only has a row for the stock that moved, the other one keeps reading the first
+        snapshot(afterAdjustments);
+        assertAsOf(stockId, afterAdjustments, 17, afterAdjustments, 0);
+        assertAsOf(stockId, between, 10, firstSnapshot, 1);
+        assertAsOf(untouchedId, afterAdjustments, 3, firstSnapshot, 0);
+    }
+
+    @Test
+    void deletedStockIsZeroAfterTheDelete() {
+        long stockId = insertStock(4);
+        adjust(stockId, 1);
+        LocalDateTime beforeDelete = databaseNow();
+
+        stockRepository.deleteAll(List.of(stockId));
+        LocalDateTime afterDelete = databaseNow();
+
+        assertAsOf(stockId, beforeDelete, 5, null, 2);
+        assertAsOf(stockId, afterDelete, 0, null, 3);
+    }
+
+    @Test
+    void adjustmentsAreRecordedAsAdjusted() {
+        long stockId = insertStock(2);
+        adjust(stockId, 3);
+        jdbcTemplate.update("UPDATE stocks SET jumlah_stok = 1 WHERE id = ?", stockId);
+
+        List<String> types = jdbcTemplate.queryForList(
+                "SELECT movement_type FROM stock_movements WHERE stock_id = ? ORDER BY id", String.class, stockId);
+        assertThat(types).containsExactly("created", "adjusted", "updated");
+    }
+
+    @Test
+    void createPartitionMovesRowsOutOfTheDefaultPartition() {
+        long stockId = insertStock(1);
+        // Far past any partition created ahead of time, so it lands in the default partition
+        jdbcTemplate.update("INSERT INTO stock_movements (stock_id, movement_type, delta, quantity_after, created_at) " +
+                "VALUES (?, 'adjusted', 2, 3, '2099-01-15 10:00')", stockId);
+        jdbcTemplate.update("INSERT INTO stock_movements (stock_id, movement_type, delta, quantity_after, created_at) " +
+                "VALUES (?, 'adjusted', 4, 7, '2099-02-15 10:00')", stockId);
+
+        stockLedgerRepository.createPartition("stock_movements_2099_01", LocalDate.of(2099, 1, 1), LocalDate.of(2099, 2, 1));
+
+        assertThat(partitionsOf(stockId, "2099-01-01")).containsExactly("stock_movements_2099_01");
+        assertThat(partitionsOf(stockId, "2099-02-01")).containsExactly("stock_movements_default");
+        assertThat(stockLedgerRepository.findPartitions()).contains("stock_movements_2099_01", "stock_movements_default");
+        assertThat(replay(stockId, LocalDateTime.of(2099, 3, 1, 0, 0))).isEqualTo(7);
+    }
+
+    private void assertAsOf(long stockId, LocalDateTime asOf, int quantity, LocalDateTime snapshotAt, long replayed) {
+        StockQuantityAsOfDTO result = stockLedgerRepository.quantityAsOf(stockId, asOf).orElseThrow();
+
+        assertThat(result.getJumlahStok()).isEqualTo(quantity);
+        assertThat(result.getJumlahStok()).isEqualTo(replay(stockId, asOf));
+        assertThat(result.getSnapshotAt()).isEqualTo(snapshotAt);
+        assertThat(result.getMovementsReplayed()).isEqualTo(replayed);
+    }
+
+    private List<String> partitionsOf(long stockId, String from) {
+        return jdbcTemplate.queryForList(
+                "SELECT tableoid::regclass::text FROM stock_movements WHERE stock_id = ? AND created_at >= cast(? as timestamp) " +
+                        "AND created_at < cast(? as timestamp) + interval '1 month'",
+                String.class, stockId, from, from);
+    }
+
+    // Reference answer: every movement up to asOf, no snapshot involved
+    private int replay(long stockId, LocalDateTime asOf) {
+        return jdbcTemplate.queryForObject(
+                "SELECT coalesce(sum(delta), 0) FROM stock_movements WHERE stock_id = ? AND created_at <= ?",
+                Integer.class, stockId, asOf);
+    }
+
+    private void snapshot(LocalDateTime snapshotAt) {
+        stockLedgerRepository.createSnapshot(stockLedgerRepository.lastSnapshotAt().orElse(null), snapshotAt);
+    }
+
+    private void adjust(long stockId, int delta) {
+        assertThat(stockRepository.adjustQuantity(stockId, delta, userId(), LocalDateTime.now())).isPresent();
+    }
+
+    // Movements are stamped with the database clock
+    private LocalDateTime databaseNow() {
+        return jdbcTemplate.queryForObject("SELECT clock_timestamp()::timestamp", LocalDateTime.class);
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.bankdkistock.repository;
+
+import com.example.bankdkistock.EmbeddedPostgresTest;
+import com.example.bankdkistock.model.Stock;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StockRepositoryAdjustQuantityTest extends EmbeddedPostgresTest {
+
+    @Autowired
+    private StockRepository stockRepository;
+
+    @Test
+    void concurrentDecrementsNeverGoBelowZero() throws Exception {
+        long stockId = insertStock(50);
+        long userId = userId();
+        int threads = 16;
+        int attemptsPerThread = 10;
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<List<Optional<Stock>>>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            for (int t = 0; t < threads; t++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    List<Optional<Stock>> outcomes = new ArrayList<>();
+                    for (int i = 0; i < attemptsPerThread; i++) {
+                        outcomes.add(stockRepository.adjustQuantity(stockId, -3, userId, LocalDateTime.now()));
+                    }
+                    return outcomes;
+                }));
+            }
+            start.countDown();
+
+            int accepted = 0;
+            for (Future<List<Optional<Stock>>> result : results) {
+                for (Optional<Stock> outcome : result.get()) {
+                    if (outcome.isEmpty()) continue;
+                    accepted++;
+                    assertThat(outcome.get().getJumlahStok()).isGreaterThanOrEqualTo(0);
+                }
+            }
+
+            // 50 / 3: sixteen decrements fit, every later one is rejected by the guard
+            assertThat(accepted).isEqualTo(16);
+            assertThat(quantityOf(stockId)).isEqualTo(2);
+        }
+    }
+
+    @Test
+    void rejectedDecrementLeavesQuantityUnchanged() {
+        long stockId = insertStock(1);
+        long userId = userId();
+
+        assertThat(stockRepository.adjustQuantity(stockId, -2, userId, LocalDateTime.now())).isEmpty();
+        assertThat(quantityOf(stockId)).isEqualTo(1);
+    }
+
+    @Test
+    void missingStockIsNotAdjusted() {
+        assertThat(stockRepository.adjustQuantity(-1L, 1, userId(), LocalDateTime.now())).isEmpty();
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.bankdkistock.service;
+
+import com.example.bankdkistock.EmbeddedPostgresTest;
+import com.example.bankdkistock.repository.ImageRefRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ImageCleanupServiceTest extends EmbeddedPostgresTest {
+
+    @Autowired
+    private ImageRefRepository imageRefRepository;
+
+    @Autowired
+    private ImageStorageService imageStorageService;
+
+    @Autowired
+    private ImageCleanupService imageCleanupService;
+
+    @Autowired
+    private StockService stockService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void bulkDeleteQueuesImagesOnceTheirLastReferenceIsGone() throws IOException {
+        String shared = storeImage();
+        String single = storeImage();
+        imageRefRepository.acquire(hashOf(shared), shared);
+        long first = insertStock(1, shared);
+        long second = insertStock(1, shared);
+        long third = insertStock(1, single);
+
+        stockService.deleteStocks(List.of(first, third));
+        assertThat(refCount(shared)).isEqualTo(1);
+        assertThat(queued(shared)).isZero();
+        assertThat(refCount(single)).isZero();
+        assertThat(queued(single)).isEqualTo(1);
+
+        stockService.deleteStocks(List.of(second));
+        assertThat(refCount(shared)).isZero();
+        assertThat(queued(shared)).isEqualTo(1);
+
+        imageCleanupService.process();
+        for (String path : List.of(shared, single)) {
+            assertThat(queued(path)).isZero();
+            assertThat(refRows(path)).isZero();
+            assertThat(imageStorageService.resolvePublicPath(path)).isEmpty();
+        }
+    }
+
+    @Test
+    void imageUploadedAgainBeforeCleanupIsKept() throws IOException {
+        String path = storeImage();
+        stockService.deleteStocks(List.of(insertStock(1, path)));
+        assertThat(queued(path)).isEqualTo(1);
+
+        // Same content uploaded for another stock while the delete is still queued
+        imageRefRepository.acquire(hashOf(path), path);
+        insertStock(1, path);
+
+        imageCleanupService.process();
+        assertThat(queued(path)).isZero();
+        assertThat(refCount(path)).isEqualTo(1);
+        assertThat(imageStorageService.resolvePublicPath(path)).isPresent();
+    }
+
+    @Test
+    void failedDeleteBacksOffUntilItIsAbandoned() throws IOException {
+        // A non-empty directory where the file should be makes every delete fail
+        String path = ImageStorageService.PUBLIC_PREFIX + UUID.randomUUID() + "_stuck.jpg";
+        Path blocker = imageStorageService.publicTargetPath(path).orElseThrow();
+        Files.createDirectories(blocker);
+        Files.write(blocker.resolve("inside"), new byte[]{1});
+        imageRefRepository.enqueueCleanup(path, false);
+
+        ImageCleanupService cleanup = new ImageCleanupService(imageRefRepository, imageStorageService, transactionTemplate,
+                new SimpleMeterRegistry(), 100, 3, Duration.ofMinutes(1));
+
+        for (int attempt = 1; attempt <= 3; attempt++) {
+            makeDue(path);
+            LocalDateTime before = LocalDateTime.now();
+            cleanup.process();
+
+            assertThat(attempts(path)).isEqualTo(attempt);
+            long expected = Duration.ofMinutes(1L << (attempt - 1)).toSeconds();
+            assertThat(Duration.between(before, nextAttemptAt(path)).toSeconds()).isBetween(expected - 1, expected + 5);
+        }
+        assertThat(cleanup.stats()).containsEntry("retried", 2L);
+        assertThat(cleanup.stats()).containsEntry("abandoned", 1L);
+        assertThat(cleanup.stats()).containsEntry("failed", 1L);
+
+        // Out of attempts: kept for someone to look at, never claimed again
+        makeDue(path);
+        cleanup.process();
+        assertThat(attempts(path)).isEqualTo(3);
+        assertThat(Files.isDirectory(blocker)).isTrue();
+    }
+
+    // What ImageStorageService.store leaves behind for a new upload: the file and a reference row
+    private String storeImage() throws IOException {
+        String hash = (UUID.randomUUID().toString() + UUID.randomUUID()).replace("-", "");
+        String path = ImageStorageService.PUBLIC_PREFIX + hash.substring(0, 2) + "/" + hash.substring(2, 4) + "/" + hash + ".jpg";
+        Path file = imageStorageService.publicTargetPath(path).orElseThrow();
+        Files.createDirectories(file.getParent());
+        Files.write(file, new byte[]{(byte) 0xFF, (byte) 0xD8, (byte) 0xFF});
+        imageRefRepository.acquire(hash, path);
+        return path;
+    }
+
+    private static String hashOf(String path) {
+        String name = path.substring(path.lastIndexOf('/') + 1);
+        return name.substring(0, name.indexOf('.'));
+    }
+
+    private int refCount(String path) {
+        return jdbcTemplate.queryForObject("SELECT ref_count FROM image_refs WHERE path = ?", Integer.class, path);
+    }
+
+    private long refRows(String path) {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM image_refs WHERE path = ?", Long.class, path);
+    }
+
+    private long queued(String path) {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM image_cleanup_queue WHERE path = ?", Long.class, path);
+    }
+
+    private int attempts(String path) {
+        return jdbcTemplate.queryForObject("SELECT attempts FROM image_cleanup_queue WHERE path = ?", Integer.class, path);
+    }
+
+    private LocalDateTime nextAttemptAt(String path) {
+        return jdbcTemplate.queryForObject("SELECT next_attempt_at FROM image_cleanup_queue WHERE path = ?", LocalDateTime.class, path);
+    }
+
+    private void makeDue(String path) {
+        jdbcTemplate.update("UPDATE image_cleanup_queue SET next_attempt_at = ? WHERE path = ?",
+                Timestamp.valueOf(LocalDateTime.now().minusMinutes(1)), path);
+    }
+}
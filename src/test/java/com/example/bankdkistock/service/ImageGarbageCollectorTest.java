@@ -0,0 +1,119 @@
+package com.example.bankdkistock.service;
+
+import com.example.bankdkistock.EmbeddedPostgresTest;
+import com.example.bankdkistock.repository.ImageRefRepository;
+import com.example.bankdkistock.repository.StockRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ImageGarbageCollectorTest extends EmbeddedPostgresTest {
+
+    // The legacy top level plus every ab/cd shard, so one run sees the whole directory wherever the cursor is
+    private static final int ALL_SHARDS = 0x10000 + 1;
+
+    @Autowired
+    private ImageRefRepository imageRefRepository;
+
+    @Autowired
+    private StockRepository stockRepository;
+
+    @Autowired
+    private ImageStorageService imageStorageService;
+
+    @Autowired
+    private ImageCleanupService imageCleanupService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void legacyUploadEndingInVariantSuffixIsItsOwnImage() throws IOException {
+        // Legacy uploads are <uuid>_<original name>, a user may well have uploaded "photo_thumb.jpg"
+        String stem = UUID.randomUUID() + "_photo";
+        Path live = writeOldFile(stem + "_thumb.jpg");
+        Path orphan = writeOldFile(stem + ".jpg");
+        insertStock(1, ImageStorageService.PUBLIC_PREFIX + stem + "_thumb.jpg");
+
+        collect(Duration.ofHours(1));
+
+        assertThat(queued(ImageStorageService.PUBLIC_PREFIX + stem + "_thumb.jpg")).isZero();
+        assertThat(queued(ImageStorageService.PUBLIC_PREFIX + stem + ".jpg")).isEqualTo(1);
+
+        // Cleaning up the orphan must not take the live upload with it as a "variant"
+        imageCleanupService.process();
+        assertThat(Files.exists(orphan)).isFalse();
+        assertThat(Files.exists(live)).isTrue();
+    }
+
+    @Test
+    void filesYoungerThanTheGracePeriodAreLeftAlone() throws IOException {
+        String name = UUID.randomUUID() + "_fresh.jpg";
+        Files.setLastModifiedTime(writeOldFile(name), FileTime.from(Instant.now().minus(Duration.ofMinutes(30))));
+
+        collect(Duration.ofHours(1));
+        assertThat(queued(ImageStorageService.PUBLIC_PREFIX + name)).isZero();
+
+        collect(Duration.ofMinutes(10));
+        assertThat(queued(ImageStorageService.PUBLIC_PREFIX + name)).isEqualTo(1);
+    }
+
+    @Test
+    void leakedReferenceIsResetOnceOlderThanTheGracePeriod() throws IOException {
+        String hash = (UUID.randomUUID().toString() + UUID.randomUUID()).replace("-", "");
+        String relativePath = hash.substring(0, 2) + "/" + hash.substring(2, 4) + "/" + hash + ".jpg";
+        String path = ImageStorageService.PUBLIC_PREFIX + relativePath;
+        Path file = writeOldFile(relativePath);
+        // A count of one that no stock accounts for, as left by a lost release
+        imageRefRepository.acquire(hash, path);
+
+        // Touched just now, an upload may be about to insert the stock that uses it
+        collect(Duration.ofHours(1));
+        assertThat(refCount(path)).isEqualTo(1);
+        assertThat(queued(path)).isZero();
+
+        jdbcTemplate.update("UPDATE image_refs SET updated_at = ? WHERE path = ?",
+                Timestamp.valueOf(LocalDateTime.now().minusDays(2)), path);
+        collect(Duration.ofHours(1));
+        assertThat(refCount(path)).isZero();
+        assertThat(queued(path)).isEqualTo(1);
+
+        imageCleanupService.process();
+        assertThat(Files.exists(file)).isFalse();
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM image_refs WHERE path = ?", Long.class, path)).isZero();
+    }
+
+    private void collect(Duration gracePeriod) {
+        new ImageGarbageCollector(imageRefRepository, stockRepository, imageStorageService, transactionTemplate,
+                new SimpleMeterRegistry(), true, 100_000, ALL_SHARDS, gracePeriod).collect();
+    }
+
+    private Path writeOldFile(String relativePath) throws IOException {
+        Path file = imageStorageService.getUploadDir().resolve(relativePath);
+        Files.createDirectories(file.getParent());
+        Files.write(file, new byte[]{(byte) 0xFF, (byte) 0xD8, (byte) 0xFF});
+        Files.setLastModifiedTime(file, FileTime.from(Instant.now().minus(Duration.ofDays(2))));
+        return file;
+    }
+
+    private int refCount(String path) {
+        return jdbcTemplate.queryForObject("SELECT ref_count FROM image_refs WHERE path = ?", Integer.class, path);
+    }
+
+    private long queued(String path) {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM image_cleanup_queue WHERE path = ?", Long.class, path);
+    }
+}
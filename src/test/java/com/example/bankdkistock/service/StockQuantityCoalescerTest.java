@@ -0,0 +1,101 @@
+package com.example.bankdkistock.service;
+
+import com.example.bankdkistock.EmbeddedPostgresTest;
+import com.example.bankdkistock.model.Stock;
+import com.example.bankdkistock.repository.StockRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StockQuantityCoalescerTest extends EmbeddedPostgresTest {
+
+    @Autowired
+    private StockRepository stockRepository;
+
+    private StockQuantityCoalescer coalescer;
+
+    @AfterEach
+    void shutdown() {
+        if (coalescer != null) coalescer.shutdown();
+    }
+
+    @Test
+    void rejectedNetDeltaIsReplayedInArrivalOrder() throws Exception {
+        // The ticker never fires, the test decides what ends up in one flush
+        coalescer = new StockQuantityCoalescer(stockRepository, 4, TimeUnit.HOURS.toMillis(1), 2);
+        long stockId = insertStock(5);
+        long userId = userId();
+
+        CompletableFuture<Optional<Stock>> first = coalescer.submit(stockId, -3, userId);
+        CompletableFuture<Optional<Stock>> second = coalescer.submit(stockId, -4, userId);
+        CompletableFuture<Optional<Stock>> third = coalescer.submit(stockId, 1, userId);
+        coalescer.flush();
+
+        // Net -6 would go below zero, one by one: 5 - 3 = 2, 2 - 4 rejected, 2 + 1 = 3
+        assertThat(first.get(5, TimeUnit.SECONDS)).hasValueSatisfying(stock -> assertThat(stock.getJumlahStok()).isEqualTo(2));
+        assertThat(second.get(5, TimeUnit.SECONDS)).isEmpty();
+        assertThat(third.get(5, TimeUnit.SECONDS)).hasValueSatisfying(stock -> assertThat(stock.getJumlahStok()).isEqualTo(3));
+        assertThat(quantityOf(stockId)).isEqualTo(3);
+        assertThat(coalescer.stats()).containsEntry("replayed", 3L);
+    }
+
+    @Test
+    void acceptedNetDeltaIsOneStatement() throws Exception {
+        coalescer = new StockQuantityCoalescer(stockRepository, 4, TimeUnit.HOURS.toMillis(1), 2);
+        long stockId = insertStock(5);
+        long userId = userId();
+
+        List<CompletableFuture<Optional<Stock>>> results = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            results.add(coalescer.submit(stockId, -1, userId));
+        }
+        coalescer.flush();
+
+        for (CompletableFuture<Optional<Stock>> result : results) {
+            assertThat(result.get(5, TimeUnit.SECONDS)).hasValueSatisfying(stock -> assertThat(stock.getJumlahStok()).isZero());
+        }
+        assertThat(coalescer.stats()).containsEntry("statements", 1L).containsEntry("replayed", 0L);
+    }
+
+    @Test
+    void concurrentCoalescedDecrementsNeverGoBelowZero() throws Exception {
+        coalescer = new StockQuantityCoalescer(stockRepository, 4, 1, 2);
+        long stockId = insertStock(100);
+        long userId = userId();
+
+        Queue<CompletableFuture<Optional<Stock>>> results = new ConcurrentLinkedQueue<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 16; t++) {
+            threads.add(Thread.ofPlatform().start(() -> {
+                for (int i = 0; i < 10; i++) {
+                    results.add(coalescer.submit(stockId, -1, userId));
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        int accepted = 0;
+        for (CompletableFuture<Optional<Stock>> result : results) {
+            Optional<Stock> stock = result.get(10, TimeUnit.SECONDS);
+            if (stock.isEmpty()) continue;
+            accepted++;
+            assertThat(stock.get().getJumlahStok()).isGreaterThanOrEqualTo(0);
+        }
+
+        // 160 requests for 100 items, whatever the flushes batched together
+        assertThat(accepted).isEqualTo(100);
+        assertThat(quantityOf(stockId)).isZero();
+    }
+}